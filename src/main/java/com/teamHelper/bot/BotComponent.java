@@ -1,24 +1,29 @@
 package com.teamHelper.bot;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.teamHelper.model.CalendarEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
-public class BotComponent {
+public class BotComponent implements MeterBinder {
 
     @Autowired
     private MessageBuilder messageBuilder;
@@ -26,6 +31,9 @@ public class BotComponent {
     @Value("${TELEGRAM_BOT_TOKEN}")
     private String botToken;
 
+    @Value("${telegram.api.url:https://api.telegram.org}")
+    private String telegramApiUrl;
+
     @Value("${MM_URL}")
     private String mmUrl;
 
@@ -50,18 +58,86 @@ public class BotComponent {
     @Value("${PROXY_PASSWORD:}")
     private String proxyPassword;
 
-    private OkHttpClient client;
+    @Value("${delivery.lane.capacity:500}")
+    private int laneCapacity;
+
+    @Value("${delivery.lane.concurrency:8}")
+    private int laneConcurrency;
+
+    @Value("${delivery.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${delivery.base-backoff-ms:500}")
+    private long baseBackoffMs;
+
+    @Value("${delivery.telegram.global-per-second:30}")
+    private double telegramGlobalPerSecond;
+
+    @Value("${delivery.telegram.per-chat-per-second:1}")
+    private double telegramPerChatPerSecond;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Value("${delivery.telegram.group-per-minute:20}")
+    private double telegramGroupPerMinute;
+
+    @Value("${delivery.mattermost.coalesce-linger-ms:1500}")
+    private long mattermostLingerMs;
+
+    private DeliveryPipeline deliveryPipeline;
+
+    private MattermostTransport mattermostTransport;
 
     @PostConstruct
     public void init() {
-        this.client = buildHttpClient();
+        TelegramRateLimiter rateLimiter = new TelegramRateLimiter(
+                telegramGlobalPerSecond, telegramPerChatPerSecond, telegramGroupPerMinute);
+        this.deliveryPipeline = new DeliveryPipeline(buildHttpClient(), laneCapacity, rateLimiter,
+                maxAttempts, baseBackoffMs);
+        this.mattermostTransport = new MattermostTransport(deliveryPipeline, mmUrl, mmToken, mattermostLingerMs);
         log.info("Bot sender initialized");
     }
 
+    @PreDestroy
+    public void shutdown() {
+        mattermostTransport.shutdown();
+        deliveryPipeline.shutdown(10_000);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (DeliveryChannel channel : DeliveryChannel.values()) {
+            Gauge.builder("delivery.queue.depth", this, bot -> bot.deliveryStats(channel).pending())
+                    .description("Принятые полосой, но ещё не доставленные сообщения")
+                    .tag("channel", channel.name())
+                    .register(registry);
+            FunctionCounter.builder("delivery.rejected", this, bot -> bot.deliveryStats(channel).rejected())
+                    .tag("channel", channel.name())
+                    .register(registry);
+            FunctionCounter.builder("delivery.dead.letters", this, bot -> bot.deliveryStats(channel).failed())
+                    .tag("channel", channel.name())
+                    .register(registry);
+        }
+    }
+
+    public DeliveryPipeline.LaneStats deliveryStats(DeliveryChannel channel) {
+        return deliveryPipeline.stats(channel);
+    }
+
+    public List<DeliveryPipeline.DeadLetter> deadLetters() {
+        return deliveryPipeline.deadLetters();
+    }
+
     private OkHttpClient buildHttpClient() {
+        // Каждый канал - отдельный хост, поэтому лимит на хост и есть параллелизм полосы
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(laneConcurrency * DeliveryChannel.values().length);
+        dispatcher.setMaxRequestsPerHost(laneConcurrency);
+
         OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                // HTTP/2 мультиплексирует запросы в одном соединении, ping держит его открытым между напоминаниями
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .pingInterval(Duration.ofSeconds(30))
+                .connectionPool(new ConnectionPool(laneConcurrency * DeliveryChannel.values().length, 5, TimeUnit.MINUTES))
                 .connectTimeout(Duration.ofSeconds(15))
                 .readTimeout(Duration.ofSeconds(30))
                 .writeTimeout(Duration.ofSeconds(30));
@@ -83,46 +159,70 @@ public class BotComponent {
         return builder.build();
     }
 
+    //Ставит уведомление в очереди обоих каналов и сразу возвращает управление
     public void sendCalendarNotification(CalendarEvent event, Long chatId, String mmChatId) {
-        try {
-            String text = messageBuilder.buildEventMessage(event);
-            sendMessage(chatId.toString(), text);
-        } catch (Exception e) {
-            log.error("Ошибка отправки уведомления в Telegram", e);
-            sendErrorMessage("Ошибка отправки уведомления в Telegram: " + e.getMessage() + " в " + chatId);
-        }
+        String telegramText = messageBuilder.render(event, DeliveryChannel.TELEGRAM);
+        deliveryPipeline.submit(DeliveryChannel.TELEGRAM, chatId.toString(), telegramRequest(chatId.toString(), telegramText),
+                error -> {
+                    log.error("Ошибка отправки уведомления в Telegram: {}", error);
+                    sendErrorMessage("Ошибка отправки уведомления в Telegram: " + error + " в " + chatId);
+                });
+
+        // Напоминания о событиях, начинающихся в одну минуту, уходят в канал одним постом
+        String coalesceKey = event.getStart().truncatedTo(ChronoUnit.MINUTES).toString();
+        log.info("Mattermost sendMessage chatId=[{}]", mmChatId);
+        mattermostTransport.post(mmChatId, coalesceKey, messageBuilder.render(event, DeliveryChannel.MATTERMOST),
+                error -> {
+                    log.error("Ошибка отправки уведомления в Mattermost: {}", error);
+                    sendErrorMessage("Ошибка отправки уведомления в Mattermost: " + error);
+                });
+    }
 
-        try {
-            String text = messageBuilder.buildEventMessage(event);
-            sendMessageToMattermost(mmChatId, text);
-        } catch (Exception e) {
-            log.error("Ошибка отправки уведомления в Mattermost", e);
-            sendErrorMessage("Ошибка отправки уведомления в Mattermost: " + e.getMessage());
+    //Утренняя сводка: текст уже в разметке канала; сводки всех чатов ставятся в очереди одной пачкой
+    public void sendDigest(DeliveryChannel channel, String chatId, String text) {
+        Consumer<String> onFailure = error -> {
+            log.error("Ошибка отправки сводки в {} {}: {}", channel, chatId, error);
+            sendErrorMessage("Ошибка отправки сводки в " + channel + ": " + error + " в " + chatId);
+        };
+        switch (channel) {
+            case TELEGRAM -> deliveryPipeline.submit(DeliveryChannel.TELEGRAM, chatId, telegramRequest(chatId, text), onFailure);
+            case MATTERMOST -> mattermostTransport.post(chatId, null, text, onFailure);
         }
     }
 
+    //Список напоминаний, пропущенных за время простоя, одним сообщением в оба канала календаря
+    public void sendMissedSummary(List<CalendarEvent> events, Long chatId, String mmChatId) {
+        deliveryPipeline.submit(DeliveryChannel.TELEGRAM, chatId.toString(),
+                telegramRequest(chatId.toString(), messageBuilder.renderMissedSummary(events, DeliveryChannel.TELEGRAM)),
+                error -> {
+                    log.error("Ошибка отправки пропущенных напоминаний в Telegram: {}", error);
+                    sendErrorMessage("Ошибка отправки пропущенных напоминаний в Telegram: " + error + " в " + chatId);
+                });
+        mattermostTransport.post(mmChatId, null, messageBuilder.renderMissedSummary(events, DeliveryChannel.MATTERMOST),
+                error -> {
+                    log.error("Ошибка отправки пропущенных напоминаний в Mattermost: {}", error);
+                    sendErrorMessage("Ошибка отправки пропущенных напоминаний в Mattermost: " + error);
+                });
+    }
+
     public void sendErrorMessage(String text) {
         if (errorChatId == null || errorChatId.isBlank() || errorChatIdMm == null || errorChatIdMm.isBlank()) {
             return;
         }
 
-        try {
-            sendMessage(errorChatId, text);
-        } catch (Exception e) {
-            log.error("Ошибка при отправке в error chat Telegram", e);
-        }
+        // Текст ошибки - обычная строка, для MarkdownV2 его нужно экранировать
+        deliveryPipeline.submit(DeliveryChannel.TELEGRAM, errorChatId,
+                telegramRequest(errorChatId, messageBuilder.escapeMarkdownV2(text)),
+                error -> log.error("Ошибка при отправке в error chat Telegram: {}", error));
 
-        try {
-            sendMessageToMattermost(errorChatIdMm, text);
-        } catch (Exception e) {
-            log.error("Ошибка при отправке в error chat Mattermost", e);
-        }
+        mattermostTransport.post(errorChatIdMm, null, text,
+                error -> log.error("Ошибка при отправке в error chat Mattermost: {}", error));
     }
 
-    public void sendMessage(String chatId, String text) throws IOException {
+    private Request telegramRequest(String chatId, String text) {
         log.info("Telegram sendMessage chatId=[{}]", chatId);
 
-        String url = "https://api.telegram.org/bot" + botToken + "/sendMessage";
+        String url = telegramApiUrl + "/bot" + botToken + "/sendMessage";
 
         RequestBody body = new FormBody.Builder()
                 .add("chat_id", chatId)
@@ -130,58 +230,9 @@ public class BotComponent {
                 .add("parse_mode", "MarkdownV2")
                 .build();
 
-        Request request = new Request.Builder()
-                .url(url)
-                .post(body)
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String responseBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Telegram API error: HTTP " + response.code() + ", body=" + responseBody);
-            }
-        }
-    }
-
-    public void sendMessageToMattermost(String chatId, String text) throws IOException {
-        log.info("Telegram sendMessage chatId=[{}]", chatId);
-
-        String url = mmUrl;
-
-        String cleanedText = text
-                .replace("\\=", "=")
-                .replace("\\.", ".")
-                .replace("\\_", "_")
-                .replace("\\*", "*")
-                .replace("\\[", "[")
-                .replace("\\]", "]")
-                .replace("\\(", "(")
-                .replace("\\)", ")")
-                .replace("\\n", "\n  ");
-
-        Map<String, String> payload = new HashMap<>();
-        payload.put("channel_id", chatId);
-        payload.put("message", cleanedText);
-
-        String jsonBody = objectMapper.writeValueAsString(payload);
-
-        RequestBody body = RequestBody.create(
-                jsonBody,
-                MediaType.parse("application/json; charset=utf-8")
-        );
-
-        Request request = new Request.Builder()
+        return new Request.Builder()
                 .url(url)
                 .post(body)
-                .addHeader("Content-Type", "application/json")
-                .addHeader("Authorization", "Bearer " + mmToken)
                 .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String responseBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Mattermost API error: HTTP " + response.code() + ", body=" + responseBody);
-            }
-        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,6 @@
+package com.teamHelper.bot;
+
+public enum DeliveryChannel {
+    TELEGRAM,
+    MATTERMOST
+}
@@ -0,0 +1,275 @@
+package com.teamHelper.bot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Асинхронная доставка исходящих сообщений.
+ * У каждого канала своя полоса с ограниченной ёмкостью: если полоса заполнена, сообщение
+ * отклоняется сразу, а не блокирует поток планировщика. Сами запросы уходят через OkHttp enqueue,
+ * так что Telegram и Mattermost отправляются параллельно.
+ * <p>
+ * Telegram дополнительно проходит через {@link TelegramRateLimiter}. Ответ 429 повторяется через
+ * retry_after, 5xx и сетевые ошибки - с экспоненциальной задержкой и jitter. Сообщения, исчерпавшие
+ * попытки, попадают в очередь недоставленных (dead letters).
+ */
+@Slf4j
+public class DeliveryPipeline {
+
+    private static final int DEAD_LETTER_LIMIT = 1000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final OkHttpClient client;
+    private final TelegramRateLimiter telegramRateLimiter;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final Map<DeliveryChannel, Lane> lanes = new EnumMap<>(DeliveryChannel.class);
+    private final Deque<DeadLetter> deadLetters = new ConcurrentLinkedDeque<>();
+    private final ScheduledExecutorService retryExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public DeliveryPipeline(OkHttpClient client, int laneCapacity, TelegramRateLimiter telegramRateLimiter,
+                            int maxAttempts, long baseBackoffMs) {
+        this.client = client;
+        this.telegramRateLimiter = telegramRateLimiter;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        for (DeliveryChannel channel : DeliveryChannel.values()) {
+            lanes.put(channel, new Lane(laneCapacity));
+        }
+
+        this.retryExecutor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "delivery-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //Ставит запрос в полосу канала; false - полоса переполнена и сообщение отброшено
+    public boolean submit(DeliveryChannel channel, String destination, Request request, Consumer<String> onFailure) {
+        Lane lane = lanes.get(channel);
+
+        if (!lane.capacity.tryAcquire()) {
+            lane.rejected.incrementAndGet();
+            log.warn("Очередь {} переполнена, сообщение в {} отброшено", channel, destination);
+            return false;
+        }
+
+        dispatch(new Delivery(channel, destination, request, onFailure, lane));
+        return true;
+    }
+
+    private void dispatch(Delivery delivery) {
+        if (delivery.channel == DeliveryChannel.TELEGRAM && telegramRateLimiter != null) {
+            long waitNanos = telegramRateLimiter.reserve(delivery.destination);
+            if (waitNanos > 0) {
+                retryExecutor.schedule(() -> dispatch(delivery), waitNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+        }
+
+        delivery.attempts++;
+        long sentAt = System.nanoTime();
+        client.newCall(delivery.request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                recordAttempt(delivery.channel, "IO_ERROR", sentAt);
+                retryOrGiveUp(delivery, e.getMessage(), backoffMs(delivery.attempts));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                recordAttempt(delivery.channel, String.valueOf(response.code()), sentAt);
+                try (response) {
+                    if (response.isSuccessful()) {
+                        delivery.lane.delivered.incrementAndGet();
+                        complete(delivery);
+                        return;
+                    }
+
+                    ResponseBody body = response.body();
+                    String responseBody = body != null ? body.string() : "";
+                    String error = delivery.channel + " API error: HTTP " + response.code() + ", body=" + responseBody;
+
+                    if (response.code() == 429) {
+                        long retryAfterSeconds = retryAfterSeconds(response, responseBody);
+                        if (delivery.channel == DeliveryChannel.TELEGRAM && telegramRateLimiter != null) {
+                            telegramRateLimiter.backOff(delivery.destination, retryAfterSeconds);
+                        }
+                        retryOrGiveUp(delivery, error, TimeUnit.SECONDS.toMillis(retryAfterSeconds) + jitterMs(250));
+                    } else if (response.code() >= 500) {
+                        retryOrGiveUp(delivery, error, backoffMs(delivery.attempts));
+                    } else {
+                        // 4xx кроме 429 повтором не исправить
+                        giveUp(delivery, error);
+                    }
+                } catch (IOException e) {
+                    retryOrGiveUp(delivery, e.getMessage(), backoffMs(delivery.attempts));
+                }
+            }
+        });
+    }
+
+    //Каждая попытка отдельно: по тегу status видно и задержку, и долю 429/5xx
+    private static void recordAttempt(DeliveryChannel channel, String status, long sentAtNanos) {
+        Metrics.timer("delivery.send", "channel", channel.name(), "status", status)
+                .record(System.nanoTime() - sentAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void retryOrGiveUp(Delivery delivery, String error, long delayMs) {
+        if (delivery.attempts >= maxAttempts) {
+            giveUp(delivery, error);
+            return;
+        }
+
+        delivery.lane.retried.incrementAndGet();
+        log.debug("Повтор отправки в {} {} через {} мс: {}", delivery.channel, delivery.destination, delayMs, error);
+        retryExecutor.schedule(() -> dispatch(delivery), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void giveUp(Delivery delivery, String error) {
+        delivery.lane.failed.incrementAndGet();
+
+        deadLetters.addLast(new DeadLetter(delivery.channel, delivery.destination, delivery.request,
+                error, delivery.attempts, Instant.now()));
+        while (deadLetters.size() > DEAD_LETTER_LIMIT) {
+            deadLetters.pollFirst();
+        }
+
+        try {
+            delivery.onFailure.accept(error);
+        } finally {
+            complete(delivery);
+        }
+    }
+
+    private void complete(Delivery delivery) {
+        delivery.lane.capacity.release();
+    }
+
+    private long retryAfterSeconds(Response response, String responseBody) {
+        try {
+            JsonNode retryAfter = objectMapper.readTree(responseBody).path("parameters").path("retry_after");
+            if (retryAfter.canConvertToLong()) {
+                return retryAfter.asLong();
+            }
+        } catch (Exception e) {
+            // Тело не JSON - пробуем заголовок
+        }
+
+        String header = response.header("Retry-After");
+        if (header != null) {
+            try {
+                return Long.parseLong(header.trim());
+            } catch (NumberFormatException ignored) {
+                // Дата вместо секунд - используем значение по умолчанию
+            }
+        }
+        return 1;
+    }
+
+    //Экспоненциальная задержка с full jitter
+    private long backoffMs(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, baseBackoffMs << Math.min(attempt - 1, 16));
+        return jitterMs(ceiling);
+    }
+
+    private long jitterMs(long bound) {
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+    }
+
+    public LaneStats stats(DeliveryChannel channel) {
+        Lane lane = lanes.get(channel);
+        return new LaneStats(lane.capacityLimit - lane.capacity.availablePermits(),
+                lane.delivered.get(), lane.failed.get(), lane.rejected.get(), lane.retried.get());
+    }
+
+    public List<DeadLetter> deadLetters() {
+        return new ArrayList<>(deadLetters);
+    }
+
+    //Дожидается отправки уже принятых сообщений и освобождает соединения
+    public void shutdown(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (Lane lane : lanes.values()) {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (lane.capacity.tryAcquire(lane.capacityLimit, remaining, TimeUnit.NANOSECONDS)) {
+                    lane.capacity.release(lane.capacityLimit);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        retryExecutor.shutdownNow();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * Снимок состояния полосы: pending - принятые, но ещё не доставленные сообщения
+     * (в том числе ожидающие лимита или повтора), failed - ушедшие в dead letters.
+     */
+    public record LaneStats(int pending, long delivered, long failed, long rejected, long retried) {
+    }
+
+    public record DeadLetter(DeliveryChannel channel, String destination, Request request,
+                             String error, int attempts, Instant failedAt) {
+    }
+
+    private static final class Delivery {
+        private final DeliveryChannel channel;
+        private final String destination;
+        private final Request request;
+        private final Consumer<String> onFailure;
+        private final Lane lane;
+        private volatile int attempts;
+
+        private Delivery(DeliveryChannel channel, String destination, Request request,
+                         Consumer<String> onFailure, Lane lane) {
+            this.channel = channel;
+            this.destination = destination;
+            this.request = request;
+            this.onFailure = onFailure;
+            this.lane = lane;
+        }
+    }
+
+    private static final class Lane {
+        private final int capacityLimit;
+        private final Semaphore capacity;
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+
+        private Lane(int capacityLimit) {
+            this.capacityLimit = capacityLimit;
+            this.capacity = new Semaphore(capacityLimit);
+        }
+    }
+}
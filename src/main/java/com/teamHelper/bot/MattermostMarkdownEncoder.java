@@ -0,0 +1,72 @@
+package com.teamHelper.bot;
+
+/**
+ * Markdown Mattermost (CommonMark): экранируются только символы inline-разметки,
+ * точки, дефисы и скобки в обычном тексте остаются как есть.
+ */
+public final class MattermostMarkdownEncoder implements MessageEncoder {
+
+    public static final MattermostMarkdownEncoder INSTANCE = new MattermostMarkdownEncoder();
+
+    private static final boolean[] SPECIAL = new boolean[128];
+
+    static {
+        for (char c : "\\`*_[]~|<".toCharArray()) {
+            SPECIAL[c] = true;
+        }
+    }
+
+    private MattermostMarkdownEncoder() {
+    }
+
+    @Override
+    public String encode(MessageDocument document) {
+        StringBuilder out = new StringBuilder(document.textLength() + 16);
+        for (MessageDocument.Token token : document.tokens()) {
+            switch (token.kind()) {
+                case TEXT -> escape(token.text(), out);
+                case CODE -> appendCode(token.text(), out);
+                case BOLD -> {
+                    out.append("**");
+                    escape(token.text(), out);
+                    out.append("**");
+                }
+                // Голый адрес Mattermost сам делает ссылкой, а в скобках длинный адрес читается хуже
+                case LINK -> {
+                    if (token.text().equals(token.url())) {
+                        out.append(token.url());
+                    } else {
+                        out.append('[');
+                        escape(token.text(), out);
+                        out.append("](").append(token.url().replace(")", "%29")).append(')');
+                    }
+                }
+                case LINE_BREAK -> out.append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static void escape(String text, StringBuilder out) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 128 && SPECIAL[c]) {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+
+    //В CommonMark код не экранируется: если внутри есть `, ограничиваем двойными обратными кавычками
+    private static void appendCode(String text, StringBuilder out) {
+        String fence = text.indexOf('`') >= 0 ? "``" : "`";
+        out.append(fence);
+        if (fence.length() > 1) {
+            out.append(' ').append(text).append(' ');
+        } else {
+            out.append(text);
+        }
+        out.append(fence);
+    }
+}
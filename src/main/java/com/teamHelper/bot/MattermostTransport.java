@@ -0,0 +1,156 @@
+package com.teamHelper.bot;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Отправка постов в Mattermost.
+ * Заголовки и URL собраны в шаблон один раз, JSON пишется потоково прямо в sink OkHttp.
+ * Напоминания в один канал с одинаковым ключом (начало события с точностью до минуты),
+ * пришедшие в течение lingerMs, склеиваются в один пост.
+ */
+@Slf4j
+public class MattermostTransport {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private static final String POST_SEPARATOR = "\n\n";
+
+    private final DeliveryPipeline pipeline;
+    private final Request template;
+    private final long lingerMs;
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flushExecutor;
+
+    public MattermostTransport(DeliveryPipeline pipeline, String url, String token, long lingerMs) {
+        this.pipeline = pipeline;
+        this.lingerMs = lingerMs;
+        this.template = new Request.Builder()
+                .url(url)
+                .header("Authorization", "Bearer " + token)
+                .build();
+
+        this.flushExecutor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "mattermost-coalesce");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //coalesceKey == null - отправить сразу, без склейки
+    public void post(String channelId, String coalesceKey, String text, Consumer<String> onFailure) {
+        if (coalesceKey == null || lingerMs <= 0) {
+            submit(channelId, text, onFailure);
+            return;
+        }
+
+        String batchKey = channelId + "|" + coalesceKey;
+        while (true) {
+            Batch batch = batches.computeIfAbsent(batchKey, key -> {
+                Batch created = new Batch(channelId);
+                flushExecutor.schedule(() -> flush(key, created), lingerMs, TimeUnit.MILLISECONDS);
+                return created;
+            });
+            if (batch.add(text, onFailure)) {
+                return;
+            }
+            // Пачка уже уходит - создадим новую
+            batches.remove(batchKey, batch);
+        }
+    }
+
+    private void flush(String batchKey, Batch batch) {
+        batches.remove(batchKey, batch);
+        List<String> texts;
+        List<Consumer<String>> callbacks;
+        synchronized (batch) {
+            batch.closed = true;
+            texts = batch.texts;
+            callbacks = batch.callbacks;
+        }
+
+        if (texts.size() > 1) {
+            log.debug("Склеено {} напоминаний в один пост Mattermost {}", texts.size(), batch.channelId);
+        }
+        submit(batch.channelId, String.join(POST_SEPARATOR, texts),
+                error -> callbacks.forEach(callback -> callback.accept(error)));
+    }
+
+    private void submit(String channelId, String text, Consumer<String> onFailure) {
+        Request request = template.newBuilder()
+                .post(new PostBody(channelId, text))
+                .build();
+        pipeline.submit(DeliveryChannel.MATTERMOST, channelId, request, onFailure);
+    }
+
+    //Отправляет накопленные пачки, не дожидаясь lingerMs
+    public void shutdown() {
+        flushExecutor.shutdownNow();
+        batches.forEach(this::flush);
+    }
+
+    /**
+     * Тело поста: {"channel_id": ..., "message": ...}, сериализуется потоково при каждой отправке,
+     * поэтому повтор запроса не требует заново собирать строку.
+     */
+    private static final class PostBody extends RequestBody {
+        private final String channelId;
+        private final String message;
+
+        private PostBody(String channelId, String message) {
+            this.channelId = channelId;
+            this.message = message;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(sink.outputStream())) {
+                generator.writeStartObject();
+                generator.writeStringField("channel_id", channelId);
+                generator.writeStringField("message", message);
+                generator.writeEndObject();
+            }
+        }
+    }
+
+    private static final class Batch {
+        private final String channelId;
+        private final List<String> texts = new ArrayList<>();
+        private final List<Consumer<String>> callbacks = new ArrayList<>();
+        private boolean closed;
+
+        private Batch(String channelId) {
+            this.channelId = channelId;
+        }
+
+        private synchronized boolean add(String text, Consumer<String> onFailure) {
+            if (closed) {
+                return false;
+            }
+            texts.add(text);
+            callbacks.add(onFailure);
+            return true;
+        }
+    }
+}
@@ -1,29 +1,144 @@
 package com.teamHelper.bot;
 
-import com.teamHelper.model.CalendarEvent;
+import com.teamHelper.calendar.FreeBusyIndex;
+import com.teamHelper.digest.DayTimeline;
+import com.teamHelper.model.EventView;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 import static com.teamHelper.calendar.CalendarConstants.DATE_FORMAT;
 
+/**
+ * Собирает текст уведомления один раз в {@link MessageDocument} и кодирует его под разметку канала.
+ * Готовый текст кешируется по (id события, начало, канал); если событие отредактировали,
+ * изменившийся отпечаток содержимого сбрасывает запись.
+ * <p>
+ * Единственное отличие от прежнего String.format + replaceAll: адреса http(s):// в описании и месте
+ * встречи уходят в Telegram ссылкой [адрес](адрес), а не экранированным текстом (test\.com),
+ * чтобы адрес в сообщении совпадал с исходным. В Mattermost такой адрес выглядит как раньше.
+ */
 @Component
 public class MessageBuilder {
 
-    public String buildEventMessage(CalendarEvent event) {
-        return String.format(
-                "🔔  %s\n" +
-                        "⏰  `%s` \\- `%s`\n\n" +
-                        "%s" +
-                        "%s",
-                escapeMarkdownV2(event.getTitle()),
-                escapeMarkdownV2(event.getStart().format(DATE_FORMAT)),
-                escapeMarkdownV2(event.getEnd().format(DATE_FORMAT)),
-                event.getDescription() != null ? "" + escapeMarkdownV2(event.getDescription()) + "\n" : "",
-                event.getLocation() != null ? "*Место\\:* " + escapeMarkdownV2(event.getLocation().getTitle()) : ""
-        );
+    private static final int CACHE_LIMIT = 2048;
+    private static final DateTimeFormatter DIGEST_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("d MMMM, EEEE", Locale.forLanguageTag("ru"));
+
+    private final Map<RenderKey, Rendered> cache = new ConcurrentHashMap<>();
+
+    public String buildEventMessage(EventView event) {
+        return render(event, DeliveryChannel.TELEGRAM);
+    }
+
+    public String render(EventView event, DeliveryChannel channel) {
+        if (event.getId() == null) {
+            return MessageEncoder.forChannel(channel).encode(buildDocument(event));
+        }
+
+        RenderKey key = new RenderKey(event.getId(), event.getStart(), channel);
+        int fingerprint = fingerprint(event);
+        Rendered cached = cache.get(key);
+        if (cached != null && cached.fingerprint == fingerprint) {
+            return cached.text;
+        }
+
+        String text = MessageEncoder.forChannel(channel).encode(buildDocument(event));
+        if (cache.size() >= CACHE_LIMIT) {
+            // Уведомления о прошедших событиях больше не понадобятся
+            cache.clear();
+        }
+        cache.put(key, new Rendered(fingerprint, text));
+        return text;
+    }
+
+    MessageDocument buildDocument(EventView event) {
+        MessageDocument document = new MessageDocument()
+                .text("🔔  ").text(event.getTitle()).lineBreak()
+                .text("⏰  ").code(event.getStart().format(DATE_FORMAT))
+                .text(" - ").code(event.getEnd().format(DATE_FORMAT))
+                .lineBreak().lineBreak();
+
+        // Ссылки - см. описание класса; остальной текст экранируется так же, как раньше
+        if (event.getDescription() != null) {
+            document.textWithLinks(event.getDescription()).lineBreak();
+        }
+        if (event.getLocationTitle() != null) {
+            document.bold("Место:").text(" ").textWithLinks(event.getLocationTitle());
+        }
+        return document;
+    }
+
+    //Утренняя сводка чата: встречи дня и свободные окна в рабочие часы
+    public String renderDigest(DayTimeline timeline, DeliveryChannel channel) {
+        return MessageEncoder.forChannel(channel).encode(buildDigestDocument(timeline));
+    }
+
+    MessageDocument buildDigestDocument(DayTimeline timeline) {
+        MessageDocument document = new MessageDocument()
+                .text("📅  ").bold("Встречи на " + timeline.date().format(DIGEST_DATE_FORMAT)).lineBreak().lineBreak();
+
+        if (timeline.meetings().isEmpty()) {
+            document.text("Встреч нет").lineBreak();
+        }
+        for (EventView event : timeline.meetings()) {
+            appendMeetingLine(document, event);
+        }
+
+        if (!timeline.free().isEmpty()) {
+            document.lineBreak().bold("Свободно:");
+            String separator = " ";
+            for (FreeBusyIndex.Slot slot : timeline.free()) {
+                document.text(separator).code(slot.start().format(DATE_FORMAT) + "-" + slot.end().format(DATE_FORMAT));
+                separator = ", ";
+            }
+        }
+        return document;
+    }
+
+    //Одно сообщение вместо пачки опоздавших напоминаний после простоя бота
+    public String renderMissedSummary(List<? extends EventView> events, DeliveryChannel channel) {
+        return MessageEncoder.forChannel(channel).encode(buildMissedSummaryDocument(events));
+    }
+
+    MessageDocument buildMissedSummaryDocument(List<? extends EventView> events) {
+        MessageDocument document = new MessageDocument()
+                .text("⚠️  ").bold("Пропущенные напоминания").lineBreak().lineBreak();
+        for (EventView event : events) {
+            appendMeetingLine(document, event);
+        }
+        return document;
+    }
+
+    private static void appendMeetingLine(MessageDocument document, EventView event) {
+        document.code(event.getStart().format(DATE_FORMAT));
+        if (event.getEnd() != null) {
+            document.text(" - ").code(event.getEnd().format(DATE_FORMAT));
+        }
+        document.text("  ").text(event.getTitle()).lineBreak();
     }
 
     public String escapeMarkdownV2(String text) {
-        if (text == null) return "";
-        return text.replaceAll("([_\\\\*\\[\\]()~`>#+\\-=|{}.!])", "\\\\$1");
+        return TelegramMarkdownEncoder.escape(text);
+    }
+
+    //Без varargs Objects.hash: считается на каждый рендер
+    private static int fingerprint(EventView event) {
+        int hash = Objects.hashCode(event.getTitle());
+        hash = 31 * hash + Objects.hashCode(event.getDescription());
+        hash = 31 * hash + Objects.hashCode(event.getEnd());
+        return 31 * hash + Objects.hashCode(event.getLocationTitle());
+    }
+
+    private record RenderKey(String eventId, LocalDateTime start, DeliveryChannel channel) {
+    }
+
+    private record Rendered(int fingerprint, String text) {
     }
 }
@@ -0,0 +1,119 @@
+package com.teamHelper.bot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Сообщение, не привязанное к разметке конкретного канала: последовательность токенов
+ * (обычный текст, код, жирный текст, ссылка, перевод строки). Экранирование делает
+ * {@link MessageEncoder} нужного канала.
+ */
+public final class MessageDocument {
+
+    public enum Kind {
+        TEXT, CODE, BOLD, LINK, LINE_BREAK
+    }
+
+    public record Token(Kind kind, String text, String url) {
+    }
+
+    private static final Token LINE_BREAK = new Token(Kind.LINE_BREAK, "\n", null);
+
+    private final List<Token> tokens = new ArrayList<>();
+    private int textLength;
+
+    public MessageDocument text(String text) {
+        return add(Kind.TEXT, text, null);
+    }
+
+    public MessageDocument code(String text) {
+        return add(Kind.CODE, text, null);
+    }
+
+    public MessageDocument bold(String text) {
+        return add(Kind.BOLD, text, null);
+    }
+
+    public MessageDocument link(String text, String url) {
+        return add(Kind.LINK, text, url);
+    }
+
+    public MessageDocument lineBreak() {
+        tokens.add(LINE_BREAK);
+        textLength++;
+        return this;
+    }
+
+    //Текст, в котором адреса http(s):// превращаются в ссылки
+    public MessageDocument textWithLinks(String text) {
+        if (text == null || text.isEmpty()) {
+            return this;
+        }
+
+        int plainStart = 0;
+        int i = text.indexOf("http", 0);
+        while (i >= 0) {
+            if (isUrlStart(text, i)) {
+                int end = i;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+                // Точка или запятая в конце предложения и скобка вокруг адреса - не часть адреса
+                while (end > i && (".,;:!?".indexOf(text.charAt(end - 1)) >= 0
+                        || text.charAt(end - 1) == ')' && unbalancedClose(text, i, end))) {
+                    end--;
+                }
+
+                if (i > plainStart) {
+                    text(text.substring(plainStart, i));
+                }
+                String url = text.substring(i, end);
+                link(url, url);
+                plainStart = end;
+                i = text.indexOf("http", end);
+            } else {
+                i = text.indexOf("http", i + 4);
+            }
+        }
+
+        if (plainStart < text.length()) {
+            text(plainStart == 0 ? text : text.substring(plainStart));
+        }
+        return this;
+    }
+
+    public List<Token> tokens() {
+        return Collections.unmodifiableList(tokens);
+    }
+
+    //Длина без учёта экранирования - стартовый размер буфера кодировщика
+    public int textLength() {
+        return textLength;
+    }
+
+    private MessageDocument add(Kind kind, String text, String url) {
+        if (text == null || text.isEmpty()) {
+            return this;
+        }
+        tokens.add(new Token(kind, text, url));
+        textLength += text.length() + (url != null ? url.length() : 0);
+        return this;
+    }
+
+    //Закрывающих скобок в адресе больше, чем открывающих: последняя закрывает текст вокруг адреса
+    private static boolean unbalancedClose(String text, int from, int to) {
+        int depth = 0;
+        for (int k = from; k < to; k++) {
+            char c = text.charAt(k);
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+        }
+        return depth < 0;
+    }
+
+    private static boolean isUrlStart(String text, int i) {
+        boolean boundary = i == 0 || Character.isWhitespace(text.charAt(i - 1)) || text.charAt(i - 1) == '(';
+        return boundary && (text.startsWith("https://", i) || text.startsWith("http://", i));
+    }
+}
@@ -0,0 +1,16 @@
+package com.teamHelper.bot;
+
+/**
+ * Превращает {@link MessageDocument} в текст с разметкой конкретного канала за один проход.
+ */
+public interface MessageEncoder {
+
+    String encode(MessageDocument document);
+
+    static MessageEncoder forChannel(DeliveryChannel channel) {
+        return switch (channel) {
+            case TELEGRAM -> TelegramMarkdownEncoder.INSTANCE;
+            case MATTERMOST -> MattermostMarkdownEncoder.INSTANCE;
+        };
+    }
+}
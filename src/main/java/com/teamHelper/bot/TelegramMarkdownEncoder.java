@@ -0,0 +1,92 @@
+package com.teamHelper.bot;
+
+/**
+ * Telegram MarkdownV2: в обычном тексте экранируются все служебные символы,
+ * внутри `кода` - только ` и \, в адресе ссылки - только ) и \.
+ */
+public final class TelegramMarkdownEncoder implements MessageEncoder {
+
+    public static final TelegramMarkdownEncoder INSTANCE = new TelegramMarkdownEncoder();
+
+    private static final boolean[] SPECIAL = new boolean[128];
+
+    static {
+        for (char c : "_*[]()~`>#+-=|{}.!\\".toCharArray()) {
+            SPECIAL[c] = true;
+        }
+    }
+
+    private TelegramMarkdownEncoder() {
+    }
+
+    @Override
+    public String encode(MessageDocument document) {
+        StringBuilder out = new StringBuilder(document.textLength() + document.textLength() / 8 + 16);
+        for (MessageDocument.Token token : document.tokens()) {
+            switch (token.kind()) {
+                case TEXT -> escape(token.text(), out);
+                case CODE -> {
+                    out.append('`');
+                    escapeCode(token.text(), out);
+                    out.append('`');
+                }
+                case BOLD -> {
+                    out.append('*');
+                    escape(token.text(), out);
+                    out.append('*');
+                }
+                case LINK -> {
+                    out.append('[');
+                    escape(token.text(), out);
+                    out.append("](");
+                    escapeUrl(token.url(), out);
+                    out.append(')');
+                }
+                case LINE_BREAK -> out.append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    public static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length() + 8);
+        escape(text, out);
+        return out.toString();
+    }
+
+    static void escape(String text, StringBuilder out) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 128 && SPECIAL[c]) {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+
+    private static void escapeCode(String text, StringBuilder out) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '`' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+
+    private static void escapeUrl(String url, StringBuilder out) {
+        int length = url.length();
+        for (int i = 0; i < length; i++) {
+            char c = url.charAt(i);
+            if (c == ')' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+}
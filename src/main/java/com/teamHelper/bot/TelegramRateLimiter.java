@@ -0,0 +1,58 @@
+package com.teamHelper.bot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Лимиты Telegram Bot API: общий бюджет бота (~30 сообщений/с) и отдельный бюджет на чат
+ * (~1 сообщение/с в личке, ~20 в минуту в группе). Сообщение уходит, только если токен есть
+ * в обоих бакетах, иначе возвращается время ожидания.
+ */
+public class TelegramRateLimiter {
+
+    private final TokenBucket global;
+    private final double perChatPerSecond;
+    private final double groupPerMinute;
+    private final LongSupplier nanoClock;
+    private final Map<String, TokenBucket> chatBuckets = new HashMap<>();
+
+    public TelegramRateLimiter(double globalPerSecond, double perChatPerSecond, double groupPerMinute) {
+        this(globalPerSecond, perChatPerSecond, groupPerMinute, System::nanoTime);
+    }
+
+    TelegramRateLimiter(double globalPerSecond, double perChatPerSecond, double groupPerMinute, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        // Без всплесков: сообщения равномерно распределяются внутри секунды
+        this.global = new TokenBucket(1, globalPerSecond, nanoClock.getAsLong());
+        this.perChatPerSecond = perChatPerSecond;
+        this.groupPerMinute = groupPerMinute;
+    }
+
+    //0 - можно отправлять (токены уже списаны), иначе сколько наносекунд подождать
+    public synchronized long reserve(String chatId) {
+        long now = nanoClock.getAsLong();
+        TokenBucket chat = chatBucket(chatId);
+
+        long wait = Math.max(chat.waitNanos(now), global.waitNanos(now));
+        if (wait > 0) {
+            return wait;
+        }
+
+        chat.take(now);
+        global.take(now);
+        return 0;
+    }
+
+    public synchronized void backOff(String chatId, long retryAfterSeconds) {
+        chatBucket(chatId).blockFor(nanoClock.getAsLong(), TimeUnit.SECONDS.toNanos(retryAfterSeconds));
+    }
+
+    private TokenBucket chatBucket(String chatId) {
+        return chatBuckets.computeIfAbsent(chatId, id -> id.startsWith("-")
+                // Отрицательный chat_id - группа или канал
+                ? new TokenBucket(1, Math.min(perChatPerSecond, groupPerMinute / 60d), nanoClock.getAsLong())
+                : new TokenBucket(1, perChatPerSecond, nanoClock.getAsLong()));
+    }
+}
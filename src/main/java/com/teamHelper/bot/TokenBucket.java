@@ -0,0 +1,54 @@
+package com.teamHelper.bot;
+
+/**
+ * Классический token bucket на System.nanoTime. Не потокобезопасен сам по себе -
+ * синхронизацию обеспечивает владелец (см. {@link TelegramRateLimiter}).
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+    private long blockedUntil;
+
+    public TokenBucket(double capacity, double tokensPerSecond) {
+        this(capacity, tokensPerSecond, System.nanoTime());
+    }
+
+    //now - показание тех же часов, что потом передаются в waitNanos/take
+    public TokenBucket(double capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = now;
+        this.blockedUntil = now;
+    }
+
+    //Сколько наносекунд ждать до появления токена; 0 - токен есть
+    public long waitNanos(long now) {
+        refill(now);
+        long blocked = Math.max(0, blockedUntil - now);
+        if (tokens >= 1) {
+            return blocked;
+        }
+        return Math.max(blocked, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    public void take(long now) {
+        refill(now);
+        tokens -= 1;
+    }
+
+    //Сервер явно попросил подождать (429 retry_after)
+    public void blockFor(long now, long nanos) {
+        blockedUntil = Math.max(blockedUntil, now + nanos);
+    }
+
+    private void refill(long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
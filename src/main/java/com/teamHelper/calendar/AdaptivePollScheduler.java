@@ -0,0 +1,238 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.cluster.ClusterMembership;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarAccountsChangedEvent;
+import com.teamHelper.config.CalendarAccountsProperties;
+import com.teamHelper.model.CalendarEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.teamHelper.calendar.CalendarConstants.NOTIFY_BEFORE_MINUTES;
+import static com.teamHelper.calendar.CalendarConstants.WORK_END;
+import static com.teamHelper.calendar.CalendarConstants.WORK_START;
+
+/**
+ * Опрашивает каждый календарь со своим интервалом вместо общего ежеминутного cron.
+ * Интервал задаёт {@link PollPolicy}: календари, которые источник проверяет дешёво (getctag, условный GET),
+ * опрашиваются с минимальным интервалом - полная выгрузка событий при этом идёт только после изменений.
+ * Остальные при отсутствии изменений опрашиваются реже, но не реже раза в NOTIFY_BEFORE_MINUTES,
+ * чтобы перенос встречи не разминулся с напоминанием; после ошибок - с паузой.
+ * Такт tick-ms лишь выбирает аккаунты, чей срок подошёл, и опрашивает их одной пачкой.
+ * В кластере опрашиваются только календари, которыми владеет этот узел ({@link ClusterMembership}).
+ */
+@Slf4j
+@Component
+public class AdaptivePollScheduler implements MeterBinder {
+
+    private final CalendarAccountsProperties calendarAccounts;
+    private final YandexCalendarService calendarService;
+    private final CalendarSourceRegistry sourceRegistry;
+    private final ClusterMembership cluster;
+    private final PollPolicy policy;
+    private final Map<String, PollState> states = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public AdaptivePollScheduler(
+            CalendarAccountsProperties calendarAccounts,
+            YandexCalendarService calendarService,
+            CalendarSourceRegistry sourceRegistry,
+            ClusterMembership cluster,
+            @Value("${calendar.poll.min-interval-ms:60000}") long minIntervalMs,
+            @Value("${calendar.poll.max-interval-ms:300000}") long maxIntervalMs,
+            @Value("${calendar.poll.max-backoff-ms:900000}") long maxBackoffMs) {
+        this.calendarAccounts = calendarAccounts;
+        this.calendarService = calendarService;
+        this.sourceRegistry = sourceRegistry;
+        this.cluster = cluster;
+        long reminderLeadMs = TimeUnit.MINUTES.toMillis(NOTIFY_BEFORE_MINUTES);
+        if (maxIntervalMs > reminderLeadMs) {
+            log.warn("calendar.poll.max-interval-ms={} больше упреждения напоминаний, используется {}",
+                    maxIntervalMs, reminderLeadMs);
+            maxIntervalMs = reminderLeadMs;
+        }
+        this.policy = new PollPolicy(minIntervalMs, maxIntervalMs, maxBackoffMs);
+    }
+
+    @Scheduled(fixedDelayString = "${calendar.poll.tick-ms:5000}")
+    public void pollDue() {
+        LocalTime time = LocalTime.now();
+        if (time.isBefore(WORK_START) || time.isAfter(WORK_END)) {
+            //спим вне рабочего времени
+            return;
+        }
+        poll(System.currentTimeMillis());
+    }
+
+    void poll(long now) {
+        List<CalendarAccountConfig> due = new ArrayList<>();
+        for (CalendarAccountConfig account : calendarAccounts.getAccounts()) {
+            if (!cluster.owns(account.getId())) {
+                // Календарь достался другому узлу кластера: здесь его события и напоминания больше не нужны
+                if (states.remove(account.getId()) != null) {
+                    calendarService.release(account);
+                }
+                continue;
+            }
+            PollState state = states.computeIfAbsent(account.getId(), id -> new PollState());
+            if (state.nextPollAt <= now) {
+                due.add(account);
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        CalendarFetchEngine.FetchResult result = calendarService.refresh(due);
+
+        LocalDateTime nowDateTime = LocalDateTime.now();
+        long polledAt = System.currentTimeMillis();
+        for (CalendarAccountConfig account : due) {
+            PollState state = states.get(account.getId());
+            if (state == null) {
+                // Календарь удалён или изменён, пока шёл опрос
+                continue;
+            }
+            String id = account.getId();
+            List<CalendarEvent> events = result.eventsByAccount().get(id);
+            long interval;
+            if (result.timedOut().contains(id) || result.failed().contains(id)) {
+                interval = onFailure(state);
+            } else if (events == null || result.stale().contains(id)) {
+                // Запрос не отправлялся (предохранитель открыт или хост занят) - паузу держит сам предохранитель
+                interval = policy.minIntervalMs();
+            } else {
+                interval = onSuccess(state, account, result.changesByAccount().get(id), events, nowDateTime);
+            }
+            // Небольшой разброс, чтобы календари с одинаковым интервалом не опрашивались в одну секунду
+            state.interval = interval;
+            state.nextPollAt = polledAt + interval + ThreadLocalRandom.current().nextLong(interval / 20 + 1);
+            log.debug("Календарь {}: следующий опрос через {} с", account.getId(), interval / 1000);
+        }
+    }
+
+    //changes - число изменений, которое насчитал EventStore.replace; null - опрос не дошёл до хранилища
+    private long onSuccess(PollState state, CalendarAccountConfig account, Integer changes,
+                           List<CalendarEvent> events, LocalDateTime now) {
+        if (state.polls > 0 && changes != null && changes == 0) {
+            state.unchangedStreak++;
+        } else {
+            state.unchangedStreak = 0;
+            state.changes++;
+        }
+        state.polls++;
+        state.consecutiveErrors = 0;
+
+        if (sourceRegistry.sourceFor(account).probesChanges(account)) {
+            return policy.minIntervalMs();
+        }
+        return policy.afterSuccess(state.unchangedStreak, msUntilNextReminder(events, now));
+    }
+
+    private long onFailure(PollState state) {
+        state.consecutiveErrors++;
+        state.errors++;
+        return policy.afterFailure(state.consecutiveErrors);
+    }
+
+    static Long msUntilNextReminder(List<CalendarEvent> events, LocalDateTime now) {
+        Long nearest = null;
+        for (CalendarEvent event : events) {
+            if (event.getStart() == null) continue;
+
+            LocalDateTime fireAt = event.getStart().minusMinutes(NOTIFY_BEFORE_MINUTES);
+            if (!fireAt.isAfter(now)) continue;
+
+            long ms = Duration.between(now, fireAt).toMillis();
+            if (nearest == null || ms < nearest) {
+                nearest = ms;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Новый календарь опрашивается в ближайший такт, изменённый - тоже, с обнулённой статистикой;
+     * удалённый перестаёт опрашиваться. Остальные календари живут по своему расписанию.
+     */
+    @EventListener
+    public void onAccountsChanged(CalendarAccountsChangedEvent event) {
+        for (CalendarAccountConfig account : event.removed()) {
+            states.remove(account.getId());
+            unbindGauges(account.getId());
+        }
+        event.changed().forEach(account -> states.remove(account.getId()));
+        event.added().forEach(account -> bindGauges(account.getId()));
+    }
+
+    //Снимок состояния опроса по календарям
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        for (CalendarAccountConfig account : calendarAccounts.getAccounts()) {
+            bindGauges(account.getId());
+        }
+    }
+
+    private void bindGauges(String id) {
+        MeterRegistry meterRegistry = registry;
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder("calendar.poll.interval", states, s -> s.containsKey(id) ? s.get(id).interval : Double.NaN)
+                .tag("account", id)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("calendar.poll.consecutive.errors", states,
+                        s -> s.containsKey(id) ? s.get(id).consecutiveErrors : 0)
+                .tag("account", id)
+                .register(meterRegistry);
+    }
+
+    private void unbindGauges(String id) {
+        MeterRegistry meterRegistry = registry;
+        if (meterRegistry == null) {
+            return;
+        }
+        meterRegistry.find("calendar.poll.interval").tag("account", id).meters().forEach(meterRegistry::remove);
+        meterRegistry.find("calendar.poll.consecutive.errors").tag("account", id).meters().forEach(meterRegistry::remove);
+    }
+
+    public Map<String, PollStatus> status() {
+        Map<String, PollStatus> snapshot = new LinkedHashMap<>();
+        states.forEach((id, state) -> snapshot.put(id, new PollStatus(state.interval, state.nextPollAt,
+                state.polls, state.changes, state.errors, state.consecutiveErrors)));
+        return snapshot;
+    }
+
+    public record PollStatus(long intervalMs, long nextPollAtMillis, long polls, long changes,
+                             long errors, int consecutiveErrors) {
+    }
+
+    private static final class PollState {
+        private volatile long nextPollAt;
+        private volatile long interval;
+        private int unchangedStreak;
+        private int consecutiveErrors;
+        private long polls;
+        private long changes;
+        private long errors;
+    }
+}
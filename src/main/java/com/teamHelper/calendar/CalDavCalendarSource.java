@@ -0,0 +1,391 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarCredentials;
+import com.teamHelper.config.HttpPropfind;
+import com.teamHelper.config.HttpReport;
+import com.teamHelper.model.CalendarEvent;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import net.fortuna.ical4j.model.Calendar;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Календарь на CalDAV-сервере (RFC 4791): calendar-query по окну, затем инкрементально
+ * ETag + calendar-multiget, а если метка коллекции (getctag/sync-token) не изменилась - без REPORT вовсе.
+ * Учётные данные берутся из аккаунта, а если их нет - общие для источника.
+ * На каждую учётную запись свой пул соединений, поэтому календари можно раскидать
+ * по нескольким служебным пользователям и не упираться в ограничения одного.
+ */
+@Service
+public class CalDavCalendarSource implements CalendarSource {
+
+    private static final Logger log = LoggerFactory.getLogger(CalDavCalendarSource.class);
+
+    // Метка из пакетного PROPFIND годится только для ближайшего опроса
+    private static final long PREFETCH_TTL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // После отказа PROPFIND метку не запрашиваем: пауза удваивается с каждой новой ошибкой
+    private static final long TAG_PROBE_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final long TAG_PROBE_MAX_BACKOFF_NANOS = TimeUnit.HOURS.toNanos(6);
+
+    private final String provider;
+    private final CalendarCredentials defaultCredentials;
+    private final CalDavTransports transports;
+    private final Map<String, CalendarSyncState> syncStates = new ConcurrentHashMap<>();
+    private final MultiStatusReader multiStatusReader = new MultiStatusReader();
+    private volatile EventExpander eventExpander = new EventExpander();
+    private final Map<String, PrefetchedTag> prefetchedTags = new ConcurrentHashMap<>();
+    private final Set<String> tagUnsupported = ConcurrentHashMap.newKeySet();
+    private final Map<String, ProbeBackoff> tagProbeFailures = new ConcurrentHashMap<>();
+
+    @Autowired
+    private CalendarQueryBuilder calendarQueryBuilder;
+
+    //Универсальный CalDAV: учётные данные обязательны в каждом аккаунте
+    @Autowired
+    public CalDavCalendarSource(CalDavTransportFactory transportFactory) {
+        this("caldav", null, transportFactory);
+    }
+
+    protected CalDavCalendarSource(String provider, CalendarCredentials defaultCredentials,
+                                   CalDavTransportFactory transportFactory) {
+        this.provider = provider;
+        this.defaultCredentials = defaultCredentials;
+        this.transports = new CalDavTransports(transportFactory);
+    }
+
+    @Value("${calendar.window.days:7}")
+    void setWindowDays(int windowDays) {
+        this.eventExpander = new EventExpander(windowDays);
+    }
+
+    @Override
+    public String provider() {
+        return provider;
+    }
+
+    @Override
+    public void forget(String accountId) {
+        syncStates.remove(accountId);
+        prefetchedTags.remove(accountId);
+        tagUnsupported.remove(accountId);
+        tagProbeFailures.remove(accountId);
+        eventExpander.evictAccount(accountId);
+        transports.release(accountId);
+    }
+
+    @Override
+    public List<CalendarEvent> getUpcomingEvents(CalendarAccountConfig account) throws Exception {
+        try {
+            LocalDate today = LocalDate.now();
+            EventExpander expander = eventExpander;
+            // Окно сдвигается раз в сутки: на краях ETag-запрос приносит только новые ресурсы
+            LocalDateTime start = expander.windowStart();
+            LocalDateTime end = expander.windowEnd();
+
+            log.debug("Загружаю события из календаря {} → {}", account.getId(), account.getUrl());
+
+            CalendarSyncState state = syncStates.computeIfAbsent(account.getId(), id -> new CalendarSyncState());
+
+            // Метку снимаем до синхронизации: изменения, пришедшие во время REPORT, увидим в следующий раз
+            String collectionTag = collectionTag(account);
+            List<CalendarEvent> unchanged = state.eventsIfUnchanged(collectionTag, today);
+            if (unchanged != null) {
+                log.debug("Календарь {} не изменился (ctag {})", account.getId(), collectionTag);
+                return unchanged;
+            }
+
+            // Первая синхронизация: полный запрос сразу отдаёт и ETag, и calendar-data
+            int unparsed = state.isEmpty()
+                    ? fullSync(account, state, start, end)
+                    : incrementalSync(account, state, start, end);
+
+            // Список поверх EventTable неизменяемый, его можно отдавать из кэша как есть
+            List<CalendarEvent> events = expander.expandAll(account.getId(), state.snapshot().values());
+            // Неразобранный ресурс не попал в состояние; без метки следующий опрос перезапросит его по ETag
+            state.markSynced(unparsed == 0 ? collectionTag : null, today, events);
+            return events;
+
+        } catch (Exception e) {
+            log.error("Ошибка получения событий: {}", e.getMessage());
+            throw new RuntimeException("Ошибка получения событий календаря", e);
+        }
+    }
+
+    @Override
+    public boolean probesChanges(CalendarAccountConfig account) {
+        return !tagUnsupported.contains(account.getId()) && !tagProbeBlocked(account.getId());
+    }
+
+    /**
+     * Снимает метки коллекций заранее, одним PROPFIND Depth 1 на родительскую коллекцию
+     * для всех календарей одного пользователя, вместо отдельного запроса на каждый календарь.
+     */
+    @Override
+    public void prepare(List<CalendarAccountConfig> accounts) {
+        Map<ProbeGroup, List<CalendarAccountConfig>> groups = new LinkedHashMap<>();
+        for (CalendarAccountConfig account : accounts) {
+            if (tagUnsupported.contains(account.getId()) || tagProbeBlocked(account.getId())) continue;
+            groups.computeIfAbsent(new ProbeGroup(credentialsFor(account), parentUrl(account.getUrl())),
+                    group -> new ArrayList<>()).add(account);
+        }
+
+        for (Map.Entry<ProbeGroup, List<CalendarAccountConfig>> group : groups.entrySet()) {
+            List<CalendarAccountConfig> members = group.getValue();
+            if (members.size() < 2) continue;
+
+            Map<String, String> tagsByPath = new HashMap<>();
+            try {
+                executeMultistatus(new HttpPropfind(URI.create(group.getKey().parentUrl())), members.get(0), "1",
+                        calendarQueryBuilder.buildCollectionTagQuery(), resource -> {
+                            if (resource.collectionTag() != null) {
+                                tagsByPath.put(normalizePath(resource.href()), resource.collectionTag());
+                            }
+                        });
+            } catch (Exception e) {
+                log.debug("Пакетный PROPFIND {} не удался: {}", group.getKey().parentUrl(), e.getMessage());
+                continue;
+            }
+
+            long now = System.nanoTime();
+            for (CalendarAccountConfig account : members) {
+                String tag = tagsByPath.get(normalizePath(account.getUrl()));
+                if (tag != null) {
+                    prefetchedTags.put(account.getId(), new PrefetchedTag(tag, now));
+                }
+            }
+        }
+    }
+
+    //null - сервер не отдаёт ни getctag, ни sync-token, и календарь синхронизируется как обычно
+    private String collectionTag(CalendarAccountConfig account) {
+        PrefetchedTag prefetched = prefetchedTags.remove(account.getId());
+        if (prefetched != null && System.nanoTime() - prefetched.takenAtNanos() < PREFETCH_TTL_NANOS) {
+            return prefetched.tag();
+        }
+        if (tagUnsupported.contains(account.getId()) || tagProbeBlocked(account.getId())) {
+            return null;
+        }
+
+        String[] tag = new String[1];
+        try {
+            executeMultistatus(new HttpPropfind(URI.create(account.getUrl())), account, "0",
+                    calendarQueryBuilder.buildCollectionTagQuery(), resource -> {
+                        if (tag[0] == null) {
+                            tag[0] = resource.collectionTag();
+                        }
+                    });
+        } catch (Exception e) {
+            ProbeBackoff backoff = tagProbeFailures.merge(account.getId(), ProbeBackoff.after(1),
+                    (previous, first) -> ProbeBackoff.after(previous.failures() + 1));
+            log.info("PROPFIND getctag для календаря {} не удался ({}), метку не спрашиваем {} мин",
+                    account.getId(), e.getMessage(), TimeUnit.NANOSECONDS.toMinutes(backoff.pauseNanos()));
+            return null;
+        }
+        tagProbeFailures.remove(account.getId());
+
+        if (tag[0] == null) {
+            log.info("Календарь {} не поддерживает getctag/sync-token, проверка изменений по ETag", account.getId());
+            tagUnsupported.add(account.getId());
+        }
+        return tag[0];
+    }
+
+    private boolean tagProbeBlocked(String accountId) {
+        ProbeBackoff backoff = tagProbeFailures.get(accountId);
+        return backoff != null && System.nanoTime() - backoff.retryAtNanos() < 0;
+    }
+
+    //Возвращает количество ресурсов, которые не удалось разобрать
+    private int fullSync(CalendarAccountConfig account, CalendarSyncState state,
+                         LocalDateTime start, LocalDateTime end) throws Exception {
+        Set<String> hrefs = new HashSet<>();
+        int[] unparsed = new int[1];
+        executeReport(account, calendarQueryBuilder.buildCalendarQuery(start, end), resource -> {
+            if (resource.calendarData() == null) return;
+            hrefs.add(resource.href());
+            if (!cacheResource(state, resource, resource.etag())) {
+                unparsed[0]++;
+            }
+        });
+        state.retainOnly(hrefs);
+
+        log.debug("Полная синхронизация календаря {}: {} ресурсов", account.getId(), hrefs.size());
+        return unparsed[0];
+    }
+
+    private int incrementalSync(CalendarAccountConfig account, CalendarSyncState state,
+                                 LocalDateTime start, LocalDateTime end) throws Exception {
+        Set<String> hrefs = new HashSet<>();
+        Map<String, String> changed = new LinkedHashMap<>();
+        executeReport(account, calendarQueryBuilder.buildEtagQuery(start, end), resource -> {
+            hrefs.add(resource.href());
+            if (!state.isUpToDate(resource.href(), resource.etag())) {
+                changed.put(resource.href(), resource.etag());
+            }
+        });
+        state.retainOnly(hrefs);
+
+        if (changed.isEmpty()) {
+            log.debug("Календарь {} не изменился ({} ресурсов)", account.getId(), hrefs.size());
+            return 0;
+        }
+
+        int[] unparsed = new int[1];
+        try {
+            executeReport(account, calendarQueryBuilder.buildMultigetQuery(changed.keySet()), resource -> {
+                if (resource.calendarData() == null) return;
+                String etag = resource.etag() != null ? resource.etag() : changed.get(resource.href());
+                if (!cacheResource(state, resource, etag)) {
+                    unparsed[0]++;
+                }
+            });
+        } catch (Exception e) {
+            // Сервер не поддерживает calendar-multiget - перечитываем окно целиком
+            log.warn("calendar-multiget недоступен для календаря {}: {}", account.getId(), e.getMessage());
+            return fullSync(account, state, start, end);
+        }
+
+        log.debug("Календарь {}: обновлено {} из {} ресурсов", account.getId(), changed.size(), hrefs.size());
+        return unparsed[0];
+    }
+
+    //false - calendar-data не разобрался, ресурс в состояние не попал
+    private boolean cacheResource(CalendarSyncState state, DavResource resource, String etag) {
+        try {
+            Calendar calendar = EventExpander.parseCalendarData(resource.calendarData());
+            if (calendar == null) return true;
+
+            state.put(resource.href(), etag, calendar);
+            return true;
+        } catch (Exception e) {
+            log.warn("Ошибка парсинга iCalendar блока {}: {}", resource.href(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void executeReport(CalendarAccountConfig account, String xmlBody,
+                               Consumer<DavResource> consumer) throws Exception {
+        HttpReport request = new HttpReport(URI.create(account.getUrl()));
+        request.setHeader("Prefer", "return-minimal");
+        executeMultistatus(request, account, "1", xmlBody, consumer);
+    }
+
+    private void executeMultistatus(HttpEntityEnclosingRequestBase request, CalendarAccountConfig account,
+                                    String depth, String xmlBody, Consumer<DavResource> consumer) throws Exception {
+        request.setHeader("Depth", depth);
+        request.setHeader("Content-Type", "text/xml; charset=utf-8");
+        request.setEntity(new StringEntity(xmlBody, StandardCharsets.UTF_8));
+
+        try (CloseableHttpResponse response = transportFor(account).execute(request, account)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+
+            if (statusCode != 207) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                log.error("Ошибка CalDAV: HTTP {}", statusCode);
+                throw new RuntimeException(String.format("Ошибка CalDAV %d", statusCode));
+            }
+
+            long started = System.nanoTime();
+            try (CountingInputStream content = new CountingInputStream(response.getEntity().getContent())) {
+                multiStatusReader.read(content, consumer);
+                // Разбор потоковый: в это время входят и чтение тела, и разбор calendar-data в consumer
+                Metrics.timer("calendar.parse", "account", account.getId(), "format", "multistatus")
+                        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                Metrics.summary("calendar.http.response.size", "account", account.getId())
+                        .record(content.count());
+            } catch (XMLStreamException e) {
+                log.error("Ошибка парсинга XML: {}", e.getMessage());
+                throw new RuntimeException("Ошибка парсинга XML: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    protected CalDavTransport transportFor(CalendarAccountConfig account) {
+        CalendarCredentials credentials = credentialsFor(account);
+        if (credentials == null) {
+            throw new IllegalStateException("Не заданы учётные данные для календаря "
+                    + (account != null ? account.getId() : "") + " (" + provider + ")");
+        }
+        return transports.acquire(account != null ? account.getId() : null, credentials);
+    }
+
+    private CalendarCredentials credentialsFor(CalendarAccountConfig account) {
+        return account != null && account.getCredentials() != null
+                ? account.getCredentials()
+                : defaultCredentials;
+    }
+
+    static String parentUrl(String url) {
+        String trimmed = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        return trimmed.substring(0, trimmed.lastIndexOf('/') + 1);
+    }
+
+    //href может прийти абсолютным URL или путём, с процентным кодированием или без
+    static String normalizePath(String hrefOrUrl) {
+        String path;
+        try {
+            path = URI.create(hrefOrUrl).getPath();
+        } catch (IllegalArgumentException e) {
+            path = hrefOrUrl;
+        }
+        if (path == null) {
+            path = hrefOrUrl;
+        }
+        return path.endsWith("/") ? path : path + "/";
+    }
+
+    //Пулы соединений по учётным записям, для наблюдения за их загрузкой
+    public Map<String, PoolStats> poolStats() {
+        return transports.poolStats();
+    }
+
+    int openTransports() {
+        return transports.size();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        transports.close();
+    }
+
+    private record ProbeGroup(CalendarCredentials credentials, String parentUrl) {
+    }
+
+    private record PrefetchedTag(String tag, long takenAtNanos) {
+    }
+
+    private record ProbeBackoff(int failures, long pauseNanos, long retryAtNanos) {
+
+        static ProbeBackoff after(int failures) {
+            long pause = Math.min(TAG_PROBE_MAX_BACKOFF_NANOS, TAG_PROBE_BACKOFF_NANOS << Math.min(failures - 1, 20));
+            return new ProbeBackoff(failures, pause, System.nanoTime() + pause);
+        }
+    }
+}
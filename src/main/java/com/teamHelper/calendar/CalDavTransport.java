@@ -0,0 +1,156 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.config.CalendarAccountConfig;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP-транспорт CalDAV для одной учётной записи.
+ * Пул соединений рассчитан на параллельный опрос всех календарей, Basic-авторизация отправляется
+ * сразу (без круга 401 → повтор), но только на хост из URL запроса: после редиректа на другой хост
+ * пароль не уходит. Простаивающие и просроченные соединения вычищаются фоновым потоком.
+ * Ответы в gzip/deflate распаковываются прозрачно (Accept-Encoding добавляет HttpClient).
+ * Тайм-ауты соединения и чтения можно переопределить для отдельного календаря.
+ */
+@Slf4j
+public class CalDavTransport implements Closeable {
+
+    // Схема, хост и порт, которым разрешено отправлять Basic-авторизацию в рамках одного execute
+    private static final String AUTH_TARGET = "teamhelper.auth-target";
+
+    private final Settings settings;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+
+    public CalDavTransport(Settings settings, String username, String password) {
+        this.settings = settings;
+
+        this.connectionManager = new PoolingHttpClientConnectionManager(settings.keepAliveMs(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(settings.maxTotal());
+        connectionManager.setDefaultMaxPerRoute(settings.maxPerRoute());
+        // Соединение, простоявшее дольше этого, проверяется перед повторным использованием
+        connectionManager.setValidateAfterInactivity(settings.validateAfterInactivityMs());
+
+        // Публичные ICS-ленты открываются без авторизации
+        String basic = username == null ? null : "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig(settings.connectTimeoutMs(), settings.readTimeoutMs()))
+                .addInterceptorFirst((HttpRequestInterceptor) (request, context) -> {
+                    if (basic == null || request.containsHeader(HttpHeaders.AUTHORIZATION)) {
+                        return;
+                    }
+                    // Интерсептор вызывается на каждом шаге редиректа с текущим целевым хостом
+                    HttpClientContext clientContext = HttpClientContext.adapt(context);
+                    if (sameOrigin(clientContext.getTargetHost(), clientContext.getAttribute(AUTH_TARGET, HttpHost.class))) {
+                        request.addHeader(HttpHeaders.AUTHORIZATION, basic);
+                    }
+                })
+                .setKeepAliveStrategy(keepAliveStrategy(settings.keepAliveMs()))
+                .evictExpiredConnections()
+                .evictIdleConnections(settings.idleEvictMs(), TimeUnit.MILLISECONDS)
+                // Отключаем обработку cookies для избежания предупреждений
+                .disableCookieManagement()
+                .build();
+    }
+
+    //Выполняет запрос с тайм-аутами календаря; ответ закрывает вызывающий
+    public CloseableHttpResponse execute(HttpRequestBase request, CalendarAccountConfig account) throws IOException {
+        if (account != null && (account.getConnectTimeoutMs() != null || account.getReadTimeoutMs() != null)) {
+            request.setConfig(requestConfig(
+                    account.getConnectTimeoutMs() != null ? account.getConnectTimeoutMs() : settings.connectTimeoutMs(),
+                    account.getReadTimeoutMs() != null ? account.getReadTimeoutMs() : settings.readTimeoutMs()));
+        }
+        long started = System.nanoTime();
+        String status = "IO_ERROR";
+        HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(AUTH_TARGET, URIUtils.extractHost(request.getURI()));
+        try {
+            CloseableHttpResponse response = client.execute(request, context);
+            status = String.valueOf(response.getStatusLine().getStatusCode());
+            return response;
+        } finally {
+            // Время до заголовков ответа; чтение тела меряет вызывающий код
+            Metrics.timer("calendar.http.requests", "account", accountTag(account),
+                            "method", request.getMethod(), "status", status)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static String accountTag(CalendarAccountConfig account) {
+        return account != null ? account.getId() : "default";
+    }
+
+    static boolean sameOrigin(HttpHost target, HttpHost allowed) {
+        return target != null && allowed != null
+                && target.getSchemeName().equalsIgnoreCase(allowed.getSchemeName())
+                && target.getHostName().equalsIgnoreCase(allowed.getHostName())
+                && effectivePort(target) == effectivePort(allowed);
+    }
+
+    private static int effectivePort(HttpHost host) {
+        if (host.getPort() >= 0) {
+            return host.getPort();
+        }
+        return "https".equalsIgnoreCase(host.getSchemeName()) ? 443 : 80;
+    }
+
+    public PoolStats poolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    private RequestConfig requestConfig(int connectTimeoutMs, int readTimeoutMs) {
+        return RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(settings.poolTimeoutMs())
+                .setContentCompressionEnabled(true)
+                .build();
+    }
+
+    //Если сервер не прислал Keep-Alive: timeout, держим соединение keepAliveMs
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMs) {
+        return (response, context) -> {
+            long serverValue = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverValue > 0 ? Math.min(serverValue, keepAliveMs) : keepAliveMs;
+        };
+    }
+
+    /**
+     * Параметры пула и тайм-аутов, общие для всех календарей транспорта.
+     */
+    public record Settings(int maxTotal, int maxPerRoute, int connectTimeoutMs, int readTimeoutMs,
+                           int poolTimeoutMs, long idleEvictMs, long keepAliveMs, int validateAfterInactivityMs) {
+
+        public static Settings defaults() {
+            return new Settings(16, 16, 5_000, 20_000, 2_000, 30_000, 30_000, 2_000);
+        }
+    }
+}
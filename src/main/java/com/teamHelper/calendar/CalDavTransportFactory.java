@@ -0,0 +1,41 @@
+package com.teamHelper.calendar;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Создаёт {@link CalDavTransport} с настройками пула из application.properties.
+ * По умолчанию пул равен параллелизму опроса, чтобы потоки calendar.fetch не ждали соединения.
+ */
+@Component
+public class CalDavTransportFactory {
+
+    private final CalDavTransport.Settings settings;
+
+    @Autowired
+    public CalDavTransportFactory(
+            @Value("${caldav.http.max-total:${calendar.fetch.parallelism:16}}") int maxTotal,
+            @Value("${caldav.http.max-per-route:${calendar.fetch.parallelism:16}}") int maxPerRoute,
+            @Value("${caldav.http.connect-timeout-ms:5000}") int connectTimeoutMs,
+            @Value("${caldav.http.read-timeout-ms:20000}") int readTimeoutMs,
+            @Value("${caldav.http.pool-timeout-ms:2000}") int poolTimeoutMs,
+            @Value("${caldav.http.idle-evict-ms:30000}") long idleEvictMs,
+            @Value("${caldav.http.keep-alive-ms:30000}") long keepAliveMs,
+            @Value("${caldav.http.validate-after-inactivity-ms:2000}") int validateAfterInactivityMs) {
+        this(new CalDavTransport.Settings(maxTotal, maxPerRoute, connectTimeoutMs, readTimeoutMs,
+                poolTimeoutMs, idleEvictMs, keepAliveMs, validateAfterInactivityMs));
+    }
+
+    public CalDavTransportFactory(CalDavTransport.Settings settings) {
+        this.settings = settings;
+    }
+
+    public CalDavTransport create(String username, String password) {
+        return new CalDavTransport(settings, username, password);
+    }
+
+    public CalDavTransport.Settings settings() {
+        return settings;
+    }
+}
@@ -0,0 +1,83 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.config.CalendarCredentials;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.pool.PoolStats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Транспорты источника по учётным записям: один пул соединений на логин и пароль.
+ * Запоминает, какой календарь какой учётной записью пользуется, и закрывает пул (вместе с его
+ * фоновым потоком чистки), когда последний такой календарь удалён или сменил пароль.
+ */
+@Slf4j
+final class CalDavTransports implements Closeable {
+
+    private final CalDavTransportFactory transportFactory;
+    private final Map<CalendarCredentials, CalDavTransport> transports = new HashMap<>();
+    private final Map<String, CalendarCredentials> credentialsByAccount = new HashMap<>();
+
+    CalDavTransports(CalDavTransportFactory transportFactory) {
+        this.transportFactory = transportFactory;
+    }
+
+    //accountId - null для служебных запросов, не привязанных к календарю
+    synchronized CalDavTransport acquire(String accountId, CalendarCredentials credentials) {
+        if (accountId != null) {
+            CalendarCredentials previous = credentialsByAccount.put(accountId, credentials);
+            if (previous != null && !previous.equals(credentials)) {
+                closeIfUnused(previous);
+            }
+        }
+        return transports.computeIfAbsent(credentials,
+                c -> transportFactory.create(c.username(), c.password()));
+    }
+
+    //Календарь больше не опрашивается этим источником
+    synchronized void release(String accountId) {
+        CalendarCredentials credentials = credentialsByAccount.remove(accountId);
+        if (credentials != null) {
+            closeIfUnused(credentials);
+        }
+    }
+
+    synchronized int size() {
+        return transports.size();
+    }
+
+    synchronized Map<String, PoolStats> poolStats() {
+        Map<String, PoolStats> stats = new LinkedHashMap<>();
+        transports.forEach((credentials, transport) -> stats.put(credentials.username(), transport.poolStats()));
+        return stats;
+    }
+
+    private void closeIfUnused(CalendarCredentials credentials) {
+        if (credentialsByAccount.containsValue(credentials)) {
+            return;
+        }
+        CalDavTransport transport = transports.remove(credentials);
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+            log.debug("Пул соединений {} закрыт: календарей с этой учётной записью не осталось", credentials);
+        } catch (IOException e) {
+            log.warn("Ошибка закрытия пула соединений {}: {}", credentials, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (CalDavTransport transport : transports.values()) {
+            transport.close();
+        }
+        transports.clear();
+        credentialsByAccount.clear();
+    }
+}
@@ -0,0 +1,7 @@
+package com.teamHelper.calendar;
+
+/**
+ * События календаря в {@link EventStore} изменились: пришёл новый снимок с изменениями или календарь убран с узла.
+ */
+public record CalendarEventsChangedEvent(String accountId) {
+}
@@ -0,0 +1,338 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarAccountsChangedEvent;
+import com.teamHelper.model.CalendarEvent;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параллельно опрашивает все календари за один такт.
+ * Число одновременных запросов ограничено размером пула, общий дедлайн такта - tickDeadlineMs.
+ * Аккаунты, не успевшие к дедлайну, попадают в {@link FetchResult#timedOut()}.
+ * <p>
+ * У каждого аккаунта свой {@link CircuitBreaker}, у каждого хоста - bulkhead на perHostConcurrency
+ * одновременных запросов: остальные календари хоста ждут места до дедлайна такта, а не пропускают его.
+ * Задачи ставятся в пул вперемешку по хостам, чтобы календари одного хоста не заняли очередь целиком.
+ * Пока календарь недоступен, вместо его событий отдаётся последний удачный снимок ({@link FetchResult#stale()}).
+ */
+@Slf4j
+@Component
+public class CalendarFetchEngine {
+
+    private final CalendarSourceRegistry sourceRegistry;
+    private final long tickDeadlineMs;
+    private final ExecutorService executor;
+    private final int perHostConcurrency;
+    private final int breakerFailureThreshold;
+    private final long breakerOpenMs;
+    private final long breakerMaxOpenMs;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> bulkheads = new ConcurrentHashMap<>();
+    private final Map<String, List<CalendarEvent>> lastGood = new ConcurrentHashMap<>();
+
+    public CalendarFetchEngine(CalendarSourceRegistry sourceRegistry, int parallelism, long tickDeadlineMs) {
+        this(sourceRegistry, parallelism, tickDeadlineMs, parallelism, 3, 60_000, 900_000);
+    }
+
+    @Autowired
+    public CalendarFetchEngine(
+            CalendarSourceRegistry sourceRegistry,
+            @Value("${calendar.fetch.parallelism:16}") int parallelism,
+            @Value("${calendar.fetch.tick-deadline-ms:50000}") long tickDeadlineMs,
+            @Value("${calendar.fetch.per-host-concurrency:8}") int perHostConcurrency,
+            @Value("${calendar.breaker.failure-threshold:3}") int breakerFailureThreshold,
+            @Value("${calendar.breaker.open-ms:60000}") long breakerOpenMs,
+            @Value("${calendar.breaker.max-open-ms:900000}") long breakerMaxOpenMs) {
+        this.sourceRegistry = sourceRegistry;
+        this.tickDeadlineMs = tickDeadlineMs;
+        this.perHostConcurrency = Math.max(1, perHostConcurrency);
+        this.breakerFailureThreshold = breakerFailureThreshold;
+        this.breakerOpenMs = breakerOpenMs;
+        this.breakerMaxOpenMs = breakerMaxOpenMs;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "caldav-fetch-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public FetchResult fetchAll(List<CalendarAccountConfig> accounts) {
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(tickDeadlineMs);
+
+        Map<String, List<CalendarEvent>> eventsByAccount = new LinkedHashMap<>();
+        List<String> timedOut = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+
+        // Открытые предохранители не трогаем вовсе - ни PROPFIND, ни REPORT
+        List<CalendarAccountConfig> admitted = new ArrayList<>();
+        for (CalendarAccountConfig account : accounts) {
+            if (!breakerFor(account.getId()).tryAcquire()) {
+                serveSnapshot(account.getId(), eventsByAccount, stale);
+                continue;
+            }
+            admitted.add(account);
+        }
+
+        prepareSources(admitted);
+
+        Map<String, Future<List<CalendarEvent>>> futures = new LinkedHashMap<>();
+        Map<String, AtomicBoolean> requested = new HashMap<>();
+        for (CalendarAccountConfig account : interleaveByHost(admitted)) {
+            Semaphore bulkhead = bulkheadFor(account);
+            AtomicBoolean sent = new AtomicBoolean();
+            requested.put(account.getId(), sent);
+            futures.put(account.getId(), executor.submit(() -> {
+                if (!bulkhead.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    throw new HostBusyException();
+                }
+                sent.set(true);
+                // Место в bulkhead освобождается, только когда запрос действительно завершился,
+                // а не когда такт перестал его ждать
+                try {
+                    log.debug("Подключаюсь к календарю {}", account.getId());
+                    return sourceRegistry.sourceFor(account).getUpcomingEvents(account);
+                } finally {
+                    bulkhead.release();
+                }
+            }));
+        }
+
+        for (Map.Entry<String, Future<List<CalendarEvent>>> entry : futures.entrySet()) {
+            String accountId = entry.getKey();
+            Future<List<CalendarEvent>> future = entry.getValue();
+            CircuitBreaker breaker = breakerFor(accountId);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                List<CalendarEvent> events = future.get(remaining, TimeUnit.NANOSECONDS);
+                eventsByAccount.put(accountId, events);
+                lastGood.put(accountId, events);
+                if (breaker.onSuccess()) {
+                    log.info("Календарь {} снова отвечает, предохранитель закрыт", accountId);
+                }
+                continue;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                if (!requested.get(accountId).get()) {
+                    skipBusyHost(accountId, breaker, eventsByAccount, stale);
+                    continue;
+                }
+                timedOut.add(accountId);
+                Metrics.counter("calendar.fetch.overruns", "account", accountId).increment();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof HostBusyException) {
+                    skipBusyHost(accountId, breaker, eventsByAccount, stale);
+                    continue;
+                }
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("Ошибка при получении событий из календаря {}: {}", accountId, cause.getMessage());
+                failed.add(accountId);
+                Metrics.counter("calendar.fetch.failures", "account", accountId).increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                timedOut.add(accountId);
+            }
+
+            if (breaker.onFailure()) {
+                CircuitBreaker.Status status = breaker.status();
+                log.warn("Календарь {} отключён после {} ошибок подряд, следующая попытка через {} с",
+                        accountId, status.consecutiveFailures(),
+                        Math.max(0, status.openUntilMillis() - System.currentTimeMillis()) / 1000);
+            }
+            serveSnapshot(accountId, eventsByAccount, stale);
+        }
+
+        Metrics.timer("calendar.fetch.tick").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (!timedOut.isEmpty()) {
+            log.warn("Календари не уложились в дедлайн такта {} мс: {}", tickDeadlineMs, timedOut);
+        }
+
+        return new FetchResult(eventsByAccount, timedOut, failed, stale);
+    }
+
+    //Удалённые и изменённые календари начинают с чистого листа: без предохранителя, снимка и состояния синхронизации
+    @EventListener
+    public void onAccountsChanged(CalendarAccountsChangedEvent event) {
+        List<CalendarAccountConfig> reset = new ArrayList<>(event.removed());
+        reset.addAll(event.changed());
+        for (CalendarAccountConfig account : reset) {
+            String id = account.getId();
+            if (breakers.remove(id) != null) {
+                Metrics.globalRegistry.find("calendar.breaker.state").tag("account", id).meters()
+                        .forEach(Metrics.globalRegistry::remove);
+            }
+            lastGood.remove(id);
+            sourceRegistry.forget(id);
+        }
+    }
+
+    //Состояние предохранителей по id аккаунта
+    public Map<String, CircuitBreaker.Status> breakerStatus() {
+        Map<String, CircuitBreaker.Status> snapshot = new TreeMap<>();
+        breakers.forEach((id, breaker) -> snapshot.put(id, breaker.status()));
+        return snapshot;
+    }
+
+    // До хоста календаря очередь так и не дошла - это не ошибка календаря
+    private void skipBusyHost(String accountId, CircuitBreaker breaker,
+                              Map<String, List<CalendarEvent>> eventsByAccount, List<String> stale) {
+        breaker.onSkipped();
+        log.debug("Хост календаря {} был занят до конца такта, берём прошлый снимок", accountId);
+        serveSnapshot(accountId, eventsByAccount, stale);
+    }
+
+    //Календари разных хостов по очереди: a1, b1, a2, b2, a3...
+    private static List<CalendarAccountConfig> interleaveByHost(List<CalendarAccountConfig> accounts) {
+        Map<String, ArrayDeque<CalendarAccountConfig>> byHost = new LinkedHashMap<>();
+        for (CalendarAccountConfig account : accounts) {
+            byHost.computeIfAbsent(hostOf(account.getUrl()), host -> new ArrayDeque<>()).add(account);
+        }
+        List<CalendarAccountConfig> ordered = new ArrayList<>(accounts.size());
+        while (ordered.size() < accounts.size()) {
+            for (ArrayDeque<CalendarAccountConfig> queue : byHost.values()) {
+                if (!queue.isEmpty()) {
+                    ordered.add(queue.poll());
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private void serveSnapshot(String accountId, Map<String, List<CalendarEvent>> eventsByAccount, List<String> stale) {
+        List<CalendarEvent> snapshot = lastGood.get(accountId);
+        if (snapshot != null) {
+            eventsByAccount.put(accountId, snapshot);
+            stale.add(accountId);
+            Metrics.counter("calendar.fetch.stale", "account", accountId).increment();
+        }
+    }
+
+    private CircuitBreaker breakerFor(String accountId) {
+        return breakers.computeIfAbsent(accountId, id -> {
+            CircuitBreaker breaker = new CircuitBreaker(breakerFailureThreshold, breakerOpenMs, breakerMaxOpenMs,
+                    System::currentTimeMillis);
+            Metrics.gauge("calendar.breaker.state", Tags.of("account", id), breaker,
+                    b -> b.status().state().ordinal());
+            return breaker;
+        });
+    }
+
+    private Semaphore bulkheadFor(CalendarAccountConfig account) {
+        return bulkheads.computeIfAbsent(hostOf(account.getUrl()), host -> {
+            Semaphore semaphore = new Semaphore(perHostConcurrency);
+            Metrics.gauge("calendar.bulkhead.in.flight", Tags.of("host", host), semaphore,
+                    s -> perHostConcurrency - s.availablePermits());
+            return semaphore;
+        });
+    }
+
+    static String hostOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() != null) {
+                return uri.getPort() > 0 ? uri.getHost() + ":" + uri.getPort() : uri.getHost();
+            }
+        } catch (IllegalArgumentException e) {
+            // Кривой URL - пусть ошибку покажет сам запрос
+        }
+        return url;
+    }
+
+    private void prepareSources(List<CalendarAccountConfig> accounts) {
+        Map<CalendarSource, List<CalendarAccountConfig>> bySource = new LinkedHashMap<>();
+        for (CalendarAccountConfig account : accounts) {
+            try {
+                bySource.computeIfAbsent(sourceRegistry.sourceFor(account), source -> new ArrayList<>()).add(account);
+            } catch (IllegalArgumentException e) {
+                // Ошибку провайдера покажет сам опрос аккаунта
+            }
+        }
+
+        bySource.forEach((source, sourceAccounts) -> {
+            try {
+                source.prepare(sourceAccounts);
+            } catch (Exception e) {
+                log.warn("Подготовка источника {} не удалась: {}", source.provider(), e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class HostBusyException extends Exception {
+        private HostBusyException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Результат такта: события по id аккаунта, а также аккаунты, не уложившиеся в дедлайн,
+     * и аккаунты, завершившиеся ошибкой. stale - аккаунты, чьи события в eventsByAccount
+     * взяты из последнего удачного снимка, а не получены в этом такте.
+     */
+    //changesByAccount - изменения в EventStore по итогам опроса, заполняет YandexCalendarService.refresh
+    public record FetchResult(Map<String, List<CalendarEvent>> eventsByAccount,
+                              List<String> timedOut,
+                              List<String> failed,
+                              List<String> stale,
+                              Map<String, Integer> changesByAccount) {
+
+        public FetchResult(Map<String, List<CalendarEvent>> eventsByAccount,
+                           List<String> timedOut,
+                           List<String> failed,
+                           List<String> stale) {
+            this(eventsByAccount, timedOut, failed, stale, Map.of());
+        }
+
+        public FetchResult(Map<String, List<CalendarEvent>> eventsByAccount,
+                           List<String> timedOut,
+                           List<String> failed) {
+            this(eventsByAccount, timedOut, failed, List.of());
+        }
+
+        public FetchResult withChanges(Map<String, Integer> changesByAccount) {
+            return new FetchResult(eventsByAccount, timedOut, failed, stale, changesByAccount);
+        }
+
+        public List<CalendarEvent> allEvents() {
+            List<CalendarEvent> all = new ArrayList<>();
+            eventsByAccount.values().forEach(all::addAll);
+            return all;
+        }
+    }
+}
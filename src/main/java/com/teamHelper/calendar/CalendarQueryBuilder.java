@@ -3,9 +3,8 @@ package com.teamHelper.calendar;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 
 @Component
 public class CalendarQueryBuilder {
@@ -33,10 +32,69 @@ public class CalendarQueryBuilder {
         );
     }
 
+    //Строит CalDAV запрос только за ETag-ами событий диапазона (без calendar-data)
+    public String buildEtagQuery(LocalDateTime start, LocalDateTime end) {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <c:calendar-query xmlns:d="DAV:" xmlns:c="urn:ietf:params:xml:ns:caldav">
+                  <d:prop>
+                    <d:getetag/>
+                  </d:prop>
+                  <c:filter>
+                    <c:comp-filter name="VCALENDAR">
+                      <c:comp-filter name="VEVENT">
+                        <c:time-range start="%s" end="%s"/>
+                      </c:comp-filter>
+                    </c:comp-filter>
+                  </c:filter>
+                </c:calendar-query>
+                """.formatted(
+                formatIcalTime(start),
+                formatIcalTime(end)
+        );
+    }
+
+    //Строит calendar-multiget запрос для выгрузки только указанных href
+    public String buildMultigetQuery(Collection<String> hrefs) {
+        StringBuilder hrefElements = new StringBuilder();
+        for (String href : hrefs) {
+            hrefElements.append("  <d:href>").append(escapeXml(href)).append("</d:href>\n");
+        }
+
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <c:calendar-multiget xmlns:d="DAV:" xmlns:c="urn:ietf:params:xml:ns:caldav">
+                  <d:prop>
+                    <d:getetag/>
+                    <c:calendar-data/>
+                  </d:prop>
+                %s</c:calendar-multiget>
+                """.formatted(hrefElements);
+    }
+
+    //PROPFIND за меткой версии коллекции: меняется при любом изменении календаря
+    public String buildCollectionTagQuery() {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <d:propfind xmlns:d="DAV:" xmlns:cs="http://calendarserver.org/ns/">
+                  <d:prop>
+                    <cs:getctag/>
+                    <d:sync-token/>
+                  </d:prop>
+                </d:propfind>
+                """;
+    }
+
     //Форматирует LocalDateTime в iCalendar формат (UTC)
     public String formatIcalTime(LocalDateTime dateTime) {
-        return dateTime.atZone(ZoneId.of("Europe/Moscow"))
+        return dateTime.atZone(ParserContext.ZONE)
                 .withZoneSameInstant(ZoneOffset.UTC)
-                .format(DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'"));
+                .format(ParserContext.ICAL_UTC);
+    }
+
+    private String escapeXml(String value) {
+        return value.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;");
     }
 }
@@ -0,0 +1,31 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.model.CalendarEvent;
+
+import java.util.List;
+
+/**
+ * Источник событий календаря. Реализация выбирается по {@link CalendarAccountConfig#getProvider()}.
+ */
+public interface CalendarSource {
+
+    //Имя провайдера в CALENDAR_<n>_PROVIDER
+    String provider();
+
+    //Вызывается перед опросом пачки аккаунтов этого источника, например чтобы снять метки изменений одним запросом
+    default void prepare(List<CalendarAccountConfig> accounts) {
+    }
+
+    //Аккаунт удалён или изменён: забыть его состояние синхронизации, следующий опрос начнётся с нуля
+    default void forget(String accountId) {
+    }
+
+    //Неизменившийся календарь распознаётся дешёвой проверкой (getctag, условный GET) без выгрузки событий
+    default boolean probesChanges(CalendarAccountConfig account) {
+        return false;
+    }
+
+    //События в окне вокруг сегодняшнего дня с развёрнутыми повторениями
+    List<CalendarEvent> getUpcomingEvents(CalendarAccountConfig account) throws Exception;
+}
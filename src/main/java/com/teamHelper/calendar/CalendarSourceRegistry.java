@@ -0,0 +1,42 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.config.CalendarAccountConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Все {@link CalendarSource} приложения по имени провайдера.
+ */
+@Slf4j
+@Component
+public class CalendarSourceRegistry {
+
+    private final Map<String, CalendarSource> sources = new TreeMap<>();
+
+    public CalendarSourceRegistry(List<CalendarSource> sources) {
+        for (CalendarSource source : sources) {
+            CalendarSource previous = this.sources.put(source.provider(), source);
+            if (previous != null) {
+                throw new IllegalStateException("Два источника календарей с провайдером " + source.provider());
+            }
+        }
+        log.info("Источники календарей: {}", this.sources.keySet());
+    }
+
+    public CalendarSource sourceFor(CalendarAccountConfig account) {
+        CalendarSource source = sources.get(account.getProvider());
+        if (source == null) {
+            throw new IllegalArgumentException("Неизвестный провайдер календаря " + account.getProvider()
+                    + " у " + account.getId() + ", доступны: " + sources.keySet());
+        }
+        return source;
+    }
+
+    public void forget(String accountId) {
+        sources.values().forEach(source -> source.forget(accountId));
+    }
+}
@@ -0,0 +1,68 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+import net.fortuna.ical4j.model.Calendar;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Состояние инкрементальной синхронизации одного календаря:
+ * href → (ETag, разобранный iCalendar). Перезапрашиваются и разбираются
+ * только ресурсы, ETag которых изменился с прошлого опроса.
+ */
+public class CalendarSyncState {
+
+    private final Map<String, CachedResource> resources = new ConcurrentHashMap<>();
+
+    // Метка коллекции (getctag/sync-token) и события, развёрнутые при последней успешной синхронизации
+    private volatile SyncedView syncedView;
+
+    public boolean isEmpty() {
+        return resources.isEmpty();
+    }
+
+    public boolean isUpToDate(String href, String etag) {
+        CachedResource cached = resources.get(href);
+        return cached != null && etag != null && etag.equals(cached.etag());
+    }
+
+    public void put(String href, String etag, Calendar calendar) {
+        resources.put(href, new CachedResource(etag, calendar));
+    }
+
+    public CachedResource get(String href) {
+        return resources.get(href);
+    }
+
+    //Удаляет ресурсы, которых больше нет в окне опроса
+    public void retainOnly(Set<String> hrefs) {
+        resources.keySet().retainAll(hrefs);
+    }
+
+    public Map<String, CachedResource> snapshot() {
+        return Map.copyOf(resources);
+    }
+
+    //События прошлой синхронизации, если метка коллекции не изменилась и день тот же
+    public List<CalendarEvent> eventsIfUnchanged(String collectionTag, LocalDate day) {
+        SyncedView view = syncedView;
+        if (view == null || collectionTag == null) {
+            return null;
+        }
+        return view.collectionTag().equals(collectionTag) && view.day().equals(day) ? view.events() : null;
+    }
+
+    public void markSynced(String collectionTag, LocalDate day, List<CalendarEvent> events) {
+        syncedView = collectionTag != null ? new SyncedView(collectionTag, day, events) : null;
+    }
+
+    private record SyncedView(String collectionTag, LocalDate day, List<CalendarEvent> events) {
+    }
+
+    public record CachedResource(String etag, Calendar calendar) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.teamHelper.calendar;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Предохранитель одного календаря.
+ * CLOSED - запросы идут как обычно; после failureThreshold ошибок подряд - OPEN.
+ * OPEN - запросов нет, пока не истечёт пауза (baseOpenMs, удваивается с каждым повторным открытием до maxOpenMs).
+ * HALF_OPEN - пропускается одна пробная попытка: успех закрывает предохранитель, ошибка снова открывает.
+ */
+public class CircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final int failureThreshold;
+    private final long baseOpenMs;
+    private final long maxOpenMs;
+    private final LongSupplier clockMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int opens;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long baseOpenMs, long maxOpenMs, LongSupplier clockMs) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseOpenMs = baseOpenMs;
+        this.maxOpenMs = Math.max(baseOpenMs, maxOpenMs);
+        this.clockMs = clockMs;
+    }
+
+    //true - запрос можно выполнять; в HALF_OPEN разрешается только одна попытка за раз
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && clockMs.getAsLong() >= openUntil) {
+            state = State.HALF_OPEN;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    //Возвращает true, если предохранитель закрылся после пробной попытки
+    public synchronized boolean onSuccess() {
+        boolean recovered = state != State.CLOSED;
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        opens = 0;
+        trialInFlight = false;
+        return recovered;
+    }
+
+    //Возвращает true, если после этой ошибки предохранитель открылся
+    public synchronized boolean onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            opens++;
+            long pause = Math.min(maxOpenMs, baseOpenMs << Math.min(opens - 1, 20));
+            openUntil = clockMs.getAsLong() + pause;
+            state = State.OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    //Попытка не состоялась (например, не досталось места в bulkhead) - не ошибка календаря
+    public synchronized void onSkipped() {
+        trialInFlight = false;
+    }
+
+    //OPEN с истёкшей паузой показывается как HALF_OPEN: следующий опрос будет пробным
+    public synchronized Status status() {
+        if (state == State.OPEN && clockMs.getAsLong() >= openUntil) {
+            return new Status(State.HALF_OPEN, consecutiveFailures, 0);
+        }
+        return new Status(state, consecutiveFailures, state == State.OPEN ? openUntil : 0);
+    }
+
+    public record Status(State state, int consecutiveFailures, long openUntilMillis) {
+    }
+}
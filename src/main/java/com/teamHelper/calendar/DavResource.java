@@ -0,0 +1,18 @@
+package com.teamHelper.calendar;
+
+/**
+ * Один элемент d:response из multistatus ответа CalDAV.
+ * calendarData равен null, если сервер вернул только ETag или ресурс удалён.
+ * ctag и syncToken заполняются в ответе PROPFIND на коллекцию (календарь целиком).
+ */
+public record DavResource(String href, String etag, String calendarData, String ctag, String syncToken) {
+
+    public DavResource(String href, String etag, String calendarData) {
+        this(href, etag, calendarData, null, null);
+    }
+
+    //Метка версии коллекции: getctag, а если сервер его не знает - sync-token
+    public String collectionTag() {
+        return ctag != null ? ctag : syncToken;
+    }
+}
@@ -0,0 +1,211 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import net.fortuna.ical4j.data.ParserException;
+import net.fortuna.ical4j.model.*;
+import net.fortuna.ical4j.model.component.VEvent;
+import net.fortuna.ical4j.model.property.RecurrenceId;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Превращает разобранные iCalendar в {@link CalendarEvent}: разворачивает RRULE с учётом
+ * RECURRENCE-ID и кэширует развёрнутые повторения. Не зависит от протокола, через который
+ * получен календарь, поэтому общий для всех {@link CalendarSource}.
+ */
+@Slf4j
+public class EventExpander {
+
+    private final OccurrenceCache occurrenceCache = new OccurrenceCache();
+    private final int windowDays;
+
+    public EventExpander() {
+        this(CalendarConstants.WINDOW_DAYS);
+    }
+
+    //windowDays - сколько суток вперёд, начиная с сегодняшних, попадает в окно
+    public EventExpander(int windowDays) {
+        if (windowDays < 1) {
+            throw new IllegalArgumentException("Окно календаря должно быть не меньше суток: " + windowDays);
+        }
+        this.windowDays = windowDays;
+    }
+
+    //null - пустой calendar-data
+    static Calendar parseCalendarData(String calendarData) throws IOException, ParserException {
+        return ParserContext.current().parseCalendarData(calendarData);
+    }
+
+    // Окно выровнено по суткам, чтобы кэш повторений не инвалидировался каждую минуту
+    public LocalDateTime windowStart() {
+        return LocalDate.now().minusDays(1).atStartOfDay();
+    }
+
+    public LocalDateTime windowEnd() {
+        return LocalDate.now().plusDays(windowDays).atStartOfDay();
+    }
+
+    //Календарь больше не опрашивается: его повторения в кэше не нужны
+    public void evictAccount(String accountId) {
+        occurrenceCache.evictAccount(accountId);
+    }
+
+    int cachedOccurrences() {
+        return occurrenceCache.size();
+    }
+
+    //Разворачивает все ресурсы календаря и забывает повторения серий, которых больше нет
+    public List<CalendarEvent> expandAll(String accountId, Collection<CalendarSyncState.CachedResource> resources) {
+        long started = System.nanoTime();
+        EventTable table = new EventTable(resources.size());
+
+        LocalDateTime periodStart = windowStart();
+        LocalDateTime periodEnd = windowEnd();
+
+        Set<String> liveUids = new HashSet<>();
+        for (CalendarSyncState.CachedResource resource : resources) {
+            // Разворачиваем повторяющиеся события
+            expandInto(table, accountId, resource.etag(), resource.calendar(), periodStart, periodEnd, liveUids);
+        }
+        occurrenceCache.retainOnly(accountId, liveUids);
+
+        Metrics.timer("calendar.expand", "account", accountId)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        Metrics.summary("calendar.occurrences", "account", accountId).record(table.size());
+        return table.asList();
+    }
+
+    List<CalendarEvent> expandRecurringEvents(String accountId, String etag, Calendar calendar,
+                                               LocalDateTime periodStart, LocalDateTime periodEnd,
+                                               Set<String> liveUids) {
+        EventTable table = new EventTable();
+        expandInto(table, accountId, etag, calendar, periodStart, periodEnd, liveUids);
+        return table.asList();
+    }
+
+    void expandInto(EventTable table, String accountId, String etag, Calendar calendar,
+                    LocalDateTime periodStart, LocalDateTime periodEnd, Set<String> liveUids) {
+
+        ZoneId zoneId = ParserContext.ZONE;
+        DateTime icalStart = new DateTime(Date.from(periodStart.atZone(zoneId).toInstant()));
+        DateTime icalEnd = new DateTime(Date.from(periodEnd.atZone(zoneId).toInstant()));
+        Period period = new Period(icalStart, icalEnd);
+
+        // Один проход по компонентам: отделяем мастер-события от переопределённых экземпляров
+        List<VEvent> masters = new ArrayList<>();
+        Map<String, List<Long>> overridesByUid = new HashMap<>();
+        for (Object component : calendar.getComponents(Component.VEVENT)) {
+            VEvent vEvent = (VEvent) component;
+            RecurrenceId recId = (RecurrenceId) vEvent.getProperty(Property.RECURRENCE_ID);
+            if (recId == null) {
+                masters.add(vEvent);
+                continue;
+            }
+
+            // События с RECURRENCE-ID – это перенесённые/изменённые экземпляры
+            if (recId.getDate() != null) {
+                overridesByUid.computeIfAbsent(vEvent.getUid().getValue(), uid -> new ArrayList<>())
+                        .add(recId.getDate().getTime());
+            }
+            // Добавляем переопределённое событие как отдельное
+            try {
+                appendEvent(table, vEvent);
+            } catch (Exception e) {
+                log.warn("Ошибка конвертации переопределённого события '{}': {}",
+                        vEvent.getSummary() != null ? vEvent.getSummary().getValue() : "Без названия",
+                        e.getMessage());
+            }
+        }
+
+        for (VEvent vEvent : masters) {
+            try {
+                // Если есть правило повторения, разворачиваем его
+                if (vEvent.getProperty(Property.RRULE) != null) {
+                    String uid = vEvent.getUid().getValue();
+                    liveUids.add(uid);
+
+                    int sequence = vEvent.getSequence() != null ? vEvent.getSequence().getSequenceNo() : 0;
+                    OccurrenceCache.Stamp stamp = new OccurrenceCache.Stamp(
+                            etag, sequence, icalStart.getTime(), icalEnd.getTime());
+
+                    OccurrenceCache.Occurrences occurrences = etag != null
+                            ? occurrenceCache.get(accountId, uid, stamp)
+                            : null;
+                    if (occurrences == null) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Разворачиваем повторяющееся событие: '{}'",
+                                    vEvent.getSummary() != null ? vEvent.getSummary().getValue() : "Без названия");
+                        }
+                        // Получаем все экземпляры события в указанном периоде
+                        occurrences = OccurrenceCache.Occurrences.from(vEvent.calculateRecurrenceSet(period),
+                                overridesByUid.getOrDefault(uid, List.of()));
+                        if (etag != null) {
+                            occurrenceCache.put(accountId, uid, stamp, occurrences);
+                        }
+                    }
+
+                    for (int i = 0; i < occurrences.size(); i++) {
+                        // Экземпляр заменён событием с RECURRENCE-ID, пропускаем оригинал
+                        if (occurrences.isOverridden(i)) continue;
+
+                        // Строка таблицы на каждое повторение, строки серии общие
+                        appendOccurrence(table, vEvent, occurrences.start(i), occurrences.end(i));
+                    }
+                } else {
+                    // Обычное событие без повторений (и без RECURRENCE-ID)
+                    appendEvent(table, vEvent);
+                }
+            } catch (Exception e) {
+                log.warn("Ошибка разворачивания события '{}': {}",
+                        vEvent.getSummary() != null ? vEvent.getSummary().getValue() : "Без названия",
+                        e.getMessage());
+                // В случае ошибки добавляем событие как обычное
+                try {
+                    appendEvent(table, vEvent);
+                } catch (Exception e2) {
+                    log.error("Критическая ошибка конвертации события: {}", e2.getMessage());
+                }
+            }
+        }
+
+    }
+
+    void appendOccurrence(EventTable table, VEvent vEvent, long startMillis, long endMillis) {
+        table.addOccurrence(vEvent.getUid().getValue(), startMillis, endMillis, title(vEvent),
+                value(vEvent.getDescription()), value(vEvent.getUrl()), value(vEvent.getLocation()));
+    }
+
+    void appendEvent(EventTable table, VEvent vEvent) {
+        Instant start = vEvent.getStartDate() != null && vEvent.getStartDate().getDate() != null
+                ? vEvent.getStartDate().getDate().toInstant()
+                : null;
+        Instant end = vEvent.getEndDate() != null && vEvent.getEndDate().getDate() != null
+                ? vEvent.getEndDate().getDate().toInstant()
+                : null;
+
+        table.addEvent(vEvent.getUid().getValue(), start, end, title(vEvent),
+                value(vEvent.getDescription()), value(vEvent.getUrl()), value(vEvent.getLocation()));
+    }
+
+    private static String title(VEvent vEvent) {
+        return vEvent.getSummary() != null ? vEvent.getSummary().getValue() : "Без названия";
+    }
+
+    private static String value(Property property) {
+        return property != null ? property.getValue() : null;
+    }
+}
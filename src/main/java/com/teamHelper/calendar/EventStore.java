@@ -0,0 +1,123 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * События всех календарей на скользящее окно (calendar.window.days), упорядоченные по началу.
+ * На каждый календарь свой ConcurrentSkipListMap, поэтому выборка диапазона стоит O(log n + k)
+ * и не требует запроса к серверу. Обновляется разницей: перезаписываются только изменившиеся события.
+ */
+@Slf4j
+@Component
+public class EventStore {
+
+    private static final Comparator<Slot> SLOT_ORDER = Comparator
+            .comparing(Slot::start)
+            .thenComparing(Slot::eventId);
+
+    private final Map<String, NavigableMap<Slot, CalendarEvent>> accounts = new ConcurrentHashMap<>();
+
+    //Заменяет события календаря новым снимком; возвращает количество добавленных, изменённых и удалённых
+    public int replace(String accountId, Collection<CalendarEvent> events) {
+        NavigableMap<Slot, CalendarEvent> index = accounts.computeIfAbsent(accountId,
+                id -> new ConcurrentSkipListMap<>(SLOT_ORDER));
+
+        // Снимки одного календаря применяются по очереди, читатели при этом не блокируются
+        synchronized (index) {
+            Set<Slot> live = new HashSet<>();
+            int changes = 0;
+            for (CalendarEvent event : events) {
+                if (event.getStart() == null || event.getId() == null) {
+                    log.debug("Событие без начала или UID не попадает в хранилище: {}", event.getTitle());
+                    continue;
+                }
+                Slot slot = new Slot(event.getStart(), event.getId());
+                live.add(slot);
+                if (!Objects.equals(index.put(slot, event), event)) {
+                    changes++;
+                }
+            }
+
+            int before = index.size();
+            index.keySet().retainAll(live);
+            return changes + before - index.size();
+        }
+    }
+
+    //События календаря, начинающиеся в [from, to)
+    public List<CalendarEvent> between(String accountId, LocalDateTime from, LocalDateTime to) {
+        NavigableMap<Slot, CalendarEvent> index = accounts.get(accountId);
+        if (index == null || !from.isBefore(to)) {
+            return List.of();
+        }
+        return List.copyOf(index.subMap(lowerBound(from), true, lowerBound(to), false).values());
+    }
+
+    //События всех календарей, начинающиеся в [from, to), по возрастанию начала
+    public List<CalendarEvent> between(LocalDateTime from, LocalDateTime to) {
+        List<CalendarEvent> result = new ArrayList<>();
+        for (String accountId : accounts.keySet()) {
+            result.addAll(between(accountId, from, to));
+        }
+        result.sort(Comparator.comparing(CalendarEvent::getStart));
+        return result;
+    }
+
+    //Все события календаря в окне по возрастанию начала
+    public List<CalendarEvent> events(String accountId) {
+        NavigableMap<Slot, CalendarEvent> index = accounts.get(accountId);
+        return index == null ? List.of() : List.copyOf(index.values());
+    }
+
+    //Ближайшее событие календаря, начинающееся не раньше from; null - таких нет
+    public CalendarEvent next(String accountId, LocalDateTime from) {
+        NavigableMap<Slot, CalendarEvent> index = accounts.get(accountId);
+        if (index == null) {
+            return null;
+        }
+        Map.Entry<Slot, CalendarEvent> entry = index.ceilingEntry(lowerBound(from));
+        return entry != null ? entry.getValue() : null;
+    }
+
+    //Отбрасывает события, ушедшие за левый край окна
+    public void evictBefore(LocalDateTime boundary) {
+        Slot bound = lowerBound(boundary);
+        accounts.values().forEach(index -> index.headMap(bound).clear());
+    }
+
+    //true - снимок календаря уже загружен, даже если событий в нём нет
+    public boolean contains(String accountId) {
+        return accounts.containsKey(accountId);
+    }
+
+    public void removeAccount(String accountId) {
+        accounts.remove(accountId);
+    }
+
+    public int size() {
+        return accounts.values().stream().mapToInt(Map::size).sum();
+    }
+
+    // "" меньше любого UID, поэтому ключ встаёт перед всеми событиями с тем же началом
+    private static Slot lowerBound(LocalDateTime start) {
+        return new Slot(start, "");
+    }
+
+    private record Slot(LocalDateTime start, String eventId) {
+    }
+}
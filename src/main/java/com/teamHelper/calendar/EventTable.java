@@ -0,0 +1,340 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Компактная таблица развёрнутых событий одного календаря: начало и конец - epoch seconds в long[],
+ * UID, названия, описания, ссылки и места - номера в словаре строк таблицы.
+ * Повторения одной серии делят одни и те же строки, а сам экземпляр стоит ~40 байт вместо
+ * бина с двумя LocalDateTime, Location и склеенным id.
+ * Наружу отдаётся через {@link #asList()} лёгкими представлениями {@link Row} с API {@link CalendarEvent}.
+ * Представление строки создаётся при первом чтении и дальше переиспользуется вместе с разобранными
+ * датами, поэтому повторные опросы, сверка напоминаний и рендер не плодят новых объектов.
+ */
+public final class EventTable {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NONE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] strings = new String[16];
+    private int stringCount;
+
+    private long[] starts;
+    private long[] ends;
+    private int[] uids;
+    private int[] titles;
+    private int[] descriptions;
+    private int[] urls;
+    private int[] locations;
+    private boolean[] occurrences;
+    private int size;
+    // Гонка при заполнении безопасна: у Row финальные поля, а лишний экземпляр просто отбрасывается
+    private Row[] rows;
+
+    public EventTable() {
+        this(16);
+    }
+
+    public EventTable(int capacity) {
+        int initial = Math.max(capacity, 1);
+        starts = new long[initial];
+        ends = new long[initial];
+        uids = new int[initial];
+        titles = new int[initial];
+        descriptions = new int[initial];
+        urls = new int[initial];
+        locations = new int[initial];
+        occurrences = new boolean[initial];
+    }
+
+    //Событие как есть; start/end - null, если в VEVENT их нет
+    public int addEvent(String uid, Instant start, Instant end, String title,
+                        String description, String url, String location) {
+        return add(uid, start != null ? start.getEpochSecond() : NO_TIME, end != null ? end.getEpochSecond() : NO_TIME,
+                false, title, description, url, location);
+    }
+
+    //Экземпляр повторяющегося события: id = UID + "_" + начало в epoch millis
+    public int addOccurrence(String uid, long startMillis, long endMillis, String title,
+                             String description, String url, String location) {
+        return add(uid, Math.floorDiv(startMillis, 1000), Math.floorDiv(endMillis, 1000),
+                true, title, description, url, location);
+    }
+
+    private int add(String uid, long start, long end, boolean occurrence, String title,
+                    String description, String url, String location) {
+        if (size == starts.length) {
+            grow();
+        }
+        int row = size++;
+        starts[row] = start;
+        ends[row] = end;
+        uids[row] = encode(uid);
+        titles[row] = encode(title);
+        descriptions[row] = encode(description);
+        urls[row] = encode(url);
+        locations[row] = encode(location);
+        occurrences[row] = occurrence;
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //Количество разных строк в словаре таблицы
+    public int dictionarySize() {
+        return stringCount;
+    }
+
+    public List<CalendarEvent> asList() {
+        return new RowList(this);
+    }
+
+    Row row(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Row[] cache = rows;
+        if (cache == null || cache.length < size) {
+            cache = cache == null ? new Row[size] : Arrays.copyOf(cache, size);
+            rows = cache;
+        }
+        Row row = cache[index];
+        if (row == null) {
+            row = new Row(this, index);
+            cache[index] = row;
+        }
+        return row;
+    }
+
+    private int encode(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, stringCount * 2);
+        }
+        strings[stringCount] = value;
+        codes.put(value, stringCount);
+        return stringCount++;
+    }
+
+    private String decode(int code) {
+        return code == NONE ? null : strings[code];
+    }
+
+    private void grow() {
+        int capacity = starts.length * 2;
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        uids = Arrays.copyOf(uids, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        urls = Arrays.copyOf(urls, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        occurrences = Arrays.copyOf(occurrences, capacity);
+    }
+
+    private static LocalDateTime toLocal(long epochSecond) {
+        return epochSecond == NO_TIME
+                ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ParserContext.ZONE);
+    }
+
+    private static final class RowList extends AbstractList<CalendarEvent> implements RandomAccess {
+        private final EventTable table;
+
+        private RowList(EventTable table) {
+            this.table = table;
+        }
+
+        @Override
+        public CalendarEvent get(int index) {
+            return table.row(index);
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+    }
+
+    /**
+     * Представление строки таблицы. Только для чтения: все сеттеры {@link CalendarEvent} бросают
+     * UnsupportedOperationException, поэтому код, который меняет события, должен работать с собственными бинами.
+     * Для рендера достаточно {@link com.teamHelper.model.EventView}: его геттеры строки не аллоцируют.
+     * equals/hashCode/toString из {@link CalendarEvent} работают через геттеры, поэтому строка
+     * равна обычному бину с теми же значениями; две строки сравниваются по полям таблиц без разбора дат.
+     * getLocation() каждый раз отдаёт новый Location: он изменяемый, и общий экземпляр можно было бы испортить.
+     */
+    public static final class Row extends CalendarEvent {
+        private final EventTable table;
+        private final int index;
+        private String id;
+        private LocalDateTime start;
+        private LocalDateTime end;
+
+        private Row(EventTable table, int index) {
+            this.table = table;
+            this.index = index;
+        }
+
+        @Override
+        public String getId() {
+            String cached = id;
+            if (cached == null) {
+                String uid = table.decode(table.uids[index]);
+                if (uid == null) {
+                    return null;
+                }
+                cached = table.occurrences[index] ? uid + "_" + table.starts[index] * 1000 : uid;
+                id = cached;
+            }
+            return cached;
+        }
+
+        @Override
+        public String getTitle() {
+            return table.decode(table.titles[index]);
+        }
+
+        @Override
+        public String getDescription() {
+            return table.decode(table.descriptions[index]);
+        }
+
+        @Override
+        public String getUrl() {
+            return table.decode(table.urls[index]);
+        }
+
+        @Override
+        public LocalDateTime getStart() {
+            LocalDateTime cached = start;
+            if (cached == null) {
+                cached = toLocal(table.starts[index]);
+                start = cached;
+            }
+            return cached;
+        }
+
+        @Override
+        public LocalDateTime getEnd() {
+            LocalDateTime cached = end;
+            if (cached == null) {
+                cached = toLocal(table.ends[index]);
+                end = cached;
+            }
+            return cached;
+        }
+
+        @Override
+        public String getLocationTitle() {
+            return table.decode(table.locations[index]);
+        }
+
+        @Override
+        public Location getLocation() {
+            String title = getLocationTitle();
+            if (title == null) {
+                return null;
+            }
+            Location location = new Location();
+            location.setTitle(title);
+            return location;
+        }
+
+        @Override
+        public List<Attendee> getAttendees() {
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Row other) {
+                return sameValues(other);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
+
+        // Снимок календаря при каждом опросе сравнивается с прежним в EventStore.replace
+        private boolean sameValues(Row other) {
+            if (other.table == table && other.index == index) {
+                return true;
+            }
+            EventTable that = other.table;
+            return table.starts[index] == that.starts[other.index]
+                    && table.ends[index] == that.ends[other.index]
+                    && Objects.equals(getId(), other.getId())
+                    && Objects.equals(getTitle(), other.getTitle())
+                    && Objects.equals(getDescription(), other.getDescription())
+                    && Objects.equals(getUrl(), other.getUrl())
+                    && Objects.equals(getLocationTitle(), other.getLocationTitle());
+        }
+
+        @Override
+        public void setId(String id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTitle(String title) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDescription(String description) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setUrl(String url) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setStart(LocalDateTime start) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setEnd(LocalDateTime end) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLocation(Location location) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setAttendees(List<Attendee> attendees) {
+            throw readOnly();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Событие из EventTable только для чтения");
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Занятость всех календарей с точностью до минуты: на каждый календарь и день - BitSet из 1440 бит
+ * и список встреч, отсортированный по началу.
+ * "Когда свободны все N календарей" - это OR их битсетов и поиск нулевых серий, то есть десятки слов long
+ * на календарь; пересечения встреч ищутся заметанием по заранее отсортированным спискам.
+ * Обновляется по {@link CalendarEventsChangedEvent}: пересобирается только изменившийся календарь,
+ * его дни подменяются целиком, поэтому запросы идут без блокировок.
+ * В индексе только календари, события которых лежат в EventStore этого узла; про остальные он ответа не знает.
+ * Те же битсеты строит {@link #busyMinutes} по произвольному списку событий, например для сводки
+ * с календарями других узлов кластера.
+ */
+@Slf4j
+@Component
+public class FreeBusyIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final EventStore eventStore;
+    private final Map<String, Map<LocalDate, Day>> calendars = new ConcurrentHashMap<>();
+
+    public FreeBusyIndex(EventStore eventStore) {
+        this.eventStore = eventStore;
+    }
+
+    // Раньше остальных слушателей, чтобы сводки пересобирались уже по новой занятости
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onEventsChanged(CalendarEventsChangedEvent event) {
+        rebuild(event.accountId());
+    }
+
+    //Пересобирает занятость календаря по его событиям в EventStore
+    public void rebuild(String accountId) {
+        if (!eventStore.contains(accountId)) {
+            calendars.remove(accountId);
+            return;
+        }
+
+        Map<LocalDate, List<Meeting>> meetingsByDay = new HashMap<>();
+        for (CalendarEvent event : eventStore.events(accountId)) {
+            if (event.getStart() == null) continue;
+            LocalDateTime start = event.getStart();
+            LocalDateTime end = end(event);
+            for (LocalDate day = start.toLocalDate(); !day.isAfter(lastDay(start, end)); day = day.plusDays(1)) {
+                meetingsByDay.computeIfAbsent(day, d -> new ArrayList<>())
+                        .add(new Meeting(accountId, fromMinute(start, day), toMinute(end, day), event));
+            }
+        }
+
+        Map<LocalDate, Day> days = new HashMap<>();
+        meetingsByDay.forEach((date, meetings) -> {
+            meetings.sort(Comparator.comparingInt(Meeting::from));
+            BitSet busy = new BitSet(MINUTES_PER_DAY);
+            meetings.forEach(meeting -> busy.set(meeting.from(), meeting.to()));
+            days.put(date, new Day(busy, List.copyOf(meetings)));
+        });
+        calendars.put(accountId, Map.copyOf(days));
+        log.debug("Занятость календаря {} пересобрана: {} дней", accountId, days.size());
+    }
+
+    /**
+     * Промежутки в [from, to) дня date, когда свободны все перечисленные календари, не короче minLength.
+     * to = LocalTime.MAX - до конца суток. Если хотя бы одного календаря нет в индексе, ответ неизвестен: empty.
+     */
+    public Optional<List<Slot>> commonFree(Collection<String> accountIds, LocalDate date, LocalTime from, LocalTime to,
+                                           Duration minLength) {
+        return commonBusy(accountIds, date).map(busy -> freeSlots(busy, date, from, to, minLength));
+    }
+
+    //Минуты дня date, занятые хотя бы в одном из календарей; empty - какого-то календаря нет в индексе
+    public Optional<BitSet> commonBusy(Collection<String> accountIds, LocalDate date) {
+        BitSet busy = new BitSet(MINUTES_PER_DAY);
+        for (String accountId : accountIds) {
+            Map<LocalDate, Day> days = calendars.get(accountId);
+            if (days == null) {
+                return Optional.empty();
+            }
+            Day day = days.get(date);
+            if (day != null) {
+                busy.or(day.busy());
+            }
+        }
+        return Optional.of(busy);
+    }
+
+    //Занятость дня date по минутам для событий, которых нет в индексе
+    public static BitSet busyMinutes(Collection<? extends CalendarEvent> events, LocalDate date) {
+        BitSet busy = new BitSet(MINUTES_PER_DAY);
+        for (CalendarEvent event : events) {
+            if (event.getStart() == null) continue;
+            LocalDateTime start = event.getStart();
+            LocalDateTime end = end(event);
+            if (date.isBefore(start.toLocalDate()) || date.isAfter(lastDay(start, end))) continue;
+            busy.set(fromMinute(start, date), toMinute(end, date));
+        }
+        return busy;
+    }
+
+    //Сплошные занятые промежутки дня по минутам; стыкующиеся и пересекающиеся встречи склеены
+    public static List<Slot> busySlots(BitSet busy, LocalDate date) {
+        List<Slot> slots = new ArrayList<>();
+        int start = busy.nextSetBit(0);
+        while (start >= 0 && start < MINUTES_PER_DAY) {
+            int end = busy.nextClearBit(start);
+            slots.add(new Slot(atMinute(date, start), atMinute(date, end)));
+            start = busy.nextSetBit(end);
+        }
+        return slots;
+    }
+
+    //Свободные промежутки в [from, to) не короче minLength; to = LocalTime.MAX - до конца суток
+    public static List<Slot> freeSlots(BitSet busy, LocalDate date, LocalTime from, LocalTime to, Duration minLength) {
+        List<Slot> free = new ArrayList<>();
+        int end = to.equals(LocalTime.MAX) ? MINUTES_PER_DAY : minuteOfDay(to);
+        long minMinutes = Math.max(1, minLength.toMinutes());
+        int start = busy.nextClearBit(minuteOfDay(from));
+        while (start < end) {
+            int busyAt = busy.nextSetBit(start);
+            int next = busyAt < 0 || busyAt > end ? end : busyAt;
+            if (next - start >= minMinutes) {
+                free.add(new Slot(atMinute(date, start), atMinute(date, next)));
+            }
+            start = busy.nextClearBit(next);
+        }
+        return free;
+    }
+
+    /**
+     * Пары пересекающихся встреч дня date в перечисленных календарях.
+     * Одна и та же встреча (одинаковый id) в календарях разных участников конфликтом не считается.
+     */
+    public List<Conflict> conflicts(Collection<String> accountIds, LocalDate date) {
+        List<Meeting> meetings = new ArrayList<>();
+        for (String accountId : accountIds) {
+            Day day = day(accountId, date);
+            if (day != null) {
+                meetings.addAll(day.meetings());
+            }
+        }
+        meetings.sort(Comparator.comparingInt(Meeting::from));
+
+        List<Conflict> conflicts = new ArrayList<>();
+        List<Meeting> active = new ArrayList<>();
+        for (Meeting meeting : meetings) {
+            if (meeting.to() <= meeting.from()) continue;
+
+            active.removeIf(open -> open.to() <= meeting.from());
+            for (Meeting open : active) {
+                if (!Objects.equals(open.event().getId(), meeting.event().getId())) {
+                    conflicts.add(new Conflict(open.accountId(), open.event(), meeting.accountId(), meeting.event()));
+                }
+            }
+            active.add(meeting);
+        }
+        return conflicts;
+    }
+
+    private static LocalDateTime end(CalendarEvent event) {
+        LocalDateTime start = event.getStart();
+        return event.getEnd() != null && event.getEnd().isAfter(start) ? event.getEnd() : start;
+    }
+
+    // Встреча через полночь попадает в каждый свой день; конец ровно в полночь следующий день не занимает
+    private static LocalDate lastDay(LocalDateTime start, LocalDateTime end) {
+        return end.isAfter(start) && end.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? end.toLocalDate().minusDays(1) : end.toLocalDate();
+    }
+
+    private static int fromMinute(LocalDateTime start, LocalDate day) {
+        return day.equals(start.toLocalDate()) ? minuteOfDay(start) : 0;
+    }
+
+    private static int toMinute(LocalDateTime end, LocalDate day) {
+        return day.equals(end.toLocalDate()) ? minuteOfDay(end) : MINUTES_PER_DAY;
+    }
+
+    private Day day(String accountId, LocalDate date) {
+        Map<LocalDate, Day> days = calendars.get(accountId);
+        return days != null ? days.get(date) : null;
+    }
+
+    private static int minuteOfDay(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static LocalDateTime atMinute(LocalDate date, int minute) {
+        return date.atStartOfDay().plusMinutes(minute);
+    }
+
+    public record Slot(LocalDateTime start, LocalDateTime end) {
+    }
+
+    public record Conflict(String firstAccountId, CalendarEvent first, String secondAccountId, CalendarEvent second) {
+    }
+
+    private record Meeting(String accountId, int from, int to, CalendarEvent event) {
+    }
+
+    private record Day(BitSet busy, List<Meeting> meetings) {
+    }
+}
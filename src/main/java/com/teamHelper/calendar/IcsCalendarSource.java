@@ -0,0 +1,175 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarCredentials;
+import com.teamHelper.model.CalendarEvent;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.fortuna.ical4j.model.Calendar;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Календарь, опубликованный ICS-ссылкой (в том числе webcal://).
+ * Лента запрашивается условным GET (If-None-Match / If-Modified-Since): пока сервер отвечает 304,
+ * повторно используется уже развёрнутый список событий.
+ */
+@Slf4j
+@Service
+public class IcsCalendarSource implements CalendarSource {
+
+    private static final CalendarCredentials ANONYMOUS = new CalendarCredentials(null, null);
+
+    private final CalDavTransports transports;
+    private final Map<String, FeedState> feeds = new ConcurrentHashMap<>();
+    private volatile EventExpander eventExpander = new EventExpander();
+
+    public IcsCalendarSource(CalDavTransportFactory transportFactory) {
+        this.transports = new CalDavTransports(transportFactory);
+    }
+
+    @Value("${calendar.window.days:7}")
+    void setWindowDays(int windowDays) {
+        this.eventExpander = new EventExpander(windowDays);
+    }
+
+    @Override
+    public String provider() {
+        return "ics";
+    }
+
+    @Override
+    public void forget(String accountId) {
+        feeds.remove(accountId);
+        eventExpander.evictAccount(accountId);
+        transports.release(accountId);
+    }
+
+    //Фид запрашивается с If-None-Match/If-Modified-Since, неизменившийся отвечает 304
+    @Override
+    public boolean probesChanges(CalendarAccountConfig account) {
+        return true;
+    }
+
+    int cachedOccurrences() {
+        return eventExpander.cachedOccurrences();
+    }
+
+    int openTransports() {
+        return transports.size();
+    }
+
+    @Override
+    public List<CalendarEvent> getUpcomingEvents(CalendarAccountConfig account) throws Exception {
+        FeedState cached = feeds.get(account.getId());
+
+        HttpGet request = new HttpGet(httpUrl(account.getUrl()));
+        request.setHeader(HttpHeaders.ACCEPT, "text/calendar");
+        if (cached != null && cached.etag() != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, cached.etag());
+        }
+        if (cached != null && cached.lastModified() != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+        }
+
+        try (CloseableHttpResponse response = transportFor(account).execute(request, account)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+
+            if (statusCode == 304 && cached != null) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                log.debug("ICS-лента {} не изменилась", account.getId());
+                if (cached.day().equals(LocalDate.now())) {
+                    return cached.events();
+                }
+                // Лента та же, но окно сдвинулось в полночь
+                List<CalendarEvent> events = expand(account.getId(), cached.version(), cached.calendar());
+                feeds.put(account.getId(), new FeedState(cached.etag(), cached.lastModified(), cached.calendar(),
+                        LocalDate.now(), events));
+                return events;
+            }
+
+            if (statusCode != 200) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                throw new RuntimeException(String.format("Ошибка загрузки ICS %d", statusCode));
+            }
+
+            Calendar calendar;
+            long started = System.nanoTime();
+            try (CountingInputStream content = new CountingInputStream(response.getEntity().getContent())) {
+                calendar = ParserContext.current().parse(content);
+                Metrics.timer("calendar.parse", "account", account.getId(), "format", "ics")
+                        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                Metrics.summary("calendar.http.response.size", "account", account.getId())
+                        .record(content.count());
+            }
+
+            String etag = headerValue(response.getFirstHeader(HttpHeaders.ETAG));
+            String lastModified = headerValue(response.getFirstHeader(HttpHeaders.LAST_MODIFIED));
+            String version = etag != null ? etag : lastModified;
+
+            List<CalendarEvent> events = expand(account.getId(), version, calendar);
+            feeds.put(account.getId(), new FeedState(etag, lastModified, calendar, LocalDate.now(), events));
+
+            log.debug("ICS-лента {}: {} событий в окне", account.getId(), events.size());
+            return events;
+        }
+    }
+
+    //Лента содержит всю историю календаря, поэтому после разворачивания оставляем только окно
+    private List<CalendarEvent> expand(String accountId, String version, Calendar calendar) {
+        EventExpander expander = eventExpander;
+        LocalDateTime windowStart = expander.windowStart();
+        LocalDateTime windowEnd = expander.windowEnd();
+
+        return expander.expandAll(accountId, List.of(new CalendarSyncState.CachedResource(version, calendar)))
+                .stream()
+                .filter(event -> event.getStart() != null
+                        && !event.getStart().isBefore(windowStart)
+                        && event.getStart().isBefore(windowEnd))
+                .toList();
+    }
+
+    private CalDavTransport transportFor(CalendarAccountConfig account) {
+        // Ключ - логин вместе с паролем: после смены пароля старый пул не переиспользуется
+        CalendarCredentials credentials = account.getCredentials();
+        return transports.acquire(account.getId(), credentials != null ? credentials : ANONYMOUS);
+    }
+
+    static String httpUrl(String url) {
+        if (url.regionMatches(true, 0, "webcal://", 0, 9)) {
+            return "https://" + url.substring(9);
+        }
+        return url;
+    }
+
+    private static String headerValue(Header header) {
+        return header != null ? header.getValue() : null;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        transports.close();
+    }
+
+    private record FeedState(String etag, String lastModified, Calendar calendar, LocalDate day,
+                             List<CalendarEvent> events) {
+
+        String version() {
+            return etag != null ? etag : lastModified;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,26 +18,35 @@ import java.util.List;
 public class MultiCalendarService {
 
     private final CalendarAccountsProperties accountsProperties;
-    private final YandexCalDavService yandexCalDavService;
+    private final CalendarFetchEngine fetchEngine;
 
     public List<EventWithChat> getAllEventsForToday() {
         List<EventWithChat> result = new ArrayList<>();
 
-        for (CalendarAccountConfig account : accountsProperties.getAccounts()) {
-            try {
-                log.debug("Подключаюсь к календарю {}", account.getId());
-
-                List<CalendarEvent> events = yandexCalDavService.getUpcomingEvents(account);
+        // Один снимок на весь вызов: файл календарей могут перечитать прямо во время опроса
+        List<CalendarAccountConfig> accounts = accountsProperties.getAccounts();
+        CalendarFetchEngine.FetchResult fetchResult = fetchEngine.fetchAll(accounts);
+        // Источники отдают окно на несколько дней вокруг сегодняшнего
+        LocalDateTime dayStart = LocalDate.now().atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+
+        for (CalendarAccountConfig account : accounts) {
+            List<CalendarEvent> events = fetchResult.eventsByAccount().get(account.getId());
+            if (events == null) {
+                continue;
+            }
 
-                for (CalendarEvent event : events) {
-                    result.add(new EventWithChat(event, account.getTelegramChatId()));
+            int today = 0;
+            for (CalendarEvent event : events) {
+                LocalDateTime start = event.getStart();
+                if (start == null || start.isBefore(dayStart) || !start.isBefore(dayEnd)) {
+                    continue;
                 }
-
-                log.info("Получено {} событий из календаря {}", events.size(), account.getId());
-
-            } catch (Exception e) {
-                log.error("Ошибка при получении событий из календаря {}: {}", account.getId(), e.getMessage());
+                result.add(new EventWithChat(event, account.getTelegramChatId()));
+                today++;
             }
+
+            log.info("Получено {} событий из календаря {}", today, account.getId());
         }
 
         return result;
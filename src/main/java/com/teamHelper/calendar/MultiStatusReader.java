@@ -0,0 +1,95 @@
+package com.teamHelper.calendar;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Потоковый (StAX) разбор multistatus ответа CalDAV.
+ * Каждый d:response отдаётся в consumer сразу после закрывающего тега,
+ * поэтому в памяти одновременно находится только одно событие, а не весь документ.
+ */
+public class MultiStatusReader {
+
+    private static final String DAV_NS = "DAV:";
+    private static final String CALDAV_NS = "urn:ietf:params:xml:ns:caldav";
+    private static final String CALENDARSERVER_NS = "http://calendarserver.org/ns/";
+
+    // Настроенная фабрика потокобезопасна для createXMLStreamReader, а поиск реализации через
+    // ServiceLoader в newInstance() дорогой - одна фабрика на процесс
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        return factory;
+    }
+
+    //Читает поток и возвращает количество обработанных d:response
+    public int read(InputStream xmlStream, Consumer<DavResource> consumer) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(xmlStream);
+        int count = 0;
+
+        try {
+            boolean inResponse = false;
+            String href = null;
+            String etag = null;
+            String calendarData = null;
+            String ctag = null;
+            String syncToken = null;
+
+            while (reader.hasNext()) {
+                int eventType = reader.next();
+
+                if (eventType == XMLStreamConstants.START_ELEMENT) {
+                    String ns = reader.getNamespaceURI();
+                    String name = reader.getLocalName();
+
+                    if (DAV_NS.equals(ns) && "response".equals(name)) {
+                        inResponse = true;
+                        href = null;
+                        etag = null;
+                        calendarData = null;
+                        ctag = null;
+                        syncToken = null;
+                    } else if (inResponse && DAV_NS.equals(ns) && "href".equals(name) && href == null) {
+                        href = textOrNull(reader.getElementText());
+                    } else if (inResponse && DAV_NS.equals(ns) && "getetag".equals(name)) {
+                        etag = textOrNull(reader.getElementText());
+                    } else if (inResponse && CALDAV_NS.equals(ns) && "calendar-data".equals(name)) {
+                        calendarData = textOrNull(reader.getElementText());
+                    } else if (inResponse && CALENDARSERVER_NS.equals(ns) && "getctag".equals(name)) {
+                        ctag = textOrNull(reader.getElementText());
+                    } else if (inResponse && DAV_NS.equals(ns) && "sync-token".equals(name)) {
+                        syncToken = textOrNull(reader.getElementText());
+                    }
+                } else if (eventType == XMLStreamConstants.END_ELEMENT
+                        && DAV_NS.equals(reader.getNamespaceURI())
+                        && "response".equals(reader.getLocalName())) {
+                    inResponse = false;
+                    if (href != null) {
+                        consumer.accept(new DavResource(href, etag, calendarData, ctag, syncToken));
+                        count++;
+                    }
+                    calendarData = null;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return count;
+    }
+
+    private String textOrNull(String text) {
+        return text == null || text.isBlank() ? null : text.trim();
+    }
+}
@@ -0,0 +1,109 @@
+package com.teamHelper.calendar;
+
+import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.Period;
+import net.fortuna.ical4j.model.PeriodList;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш развёрнутых повторений RRULE по (аккаунт, UID).
+ * Запись валидна, пока не изменились ETag ресурса, SEQUENCE мастер-события и окно разворачивания,
+ * поэтому в установившемся режиме calculateRecurrenceSet не вызывается вовсе.
+ */
+public class OccurrenceCache {
+
+    private final Map<String, Map<String, Entry>> entriesByAccount = new ConcurrentHashMap<>();
+
+    public Occurrences get(String accountId, String uid, Stamp stamp) {
+        Map<String, Entry> entries = entriesByAccount.get(accountId);
+        if (entries == null) return null;
+
+        Entry entry = entries.get(uid);
+        return entry != null && entry.stamp().equals(stamp) ? entry.occurrences() : null;
+    }
+
+    public void put(String accountId, String uid, Stamp stamp, Occurrences occurrences) {
+        entriesByAccount.computeIfAbsent(accountId, id -> new ConcurrentHashMap<>())
+                .put(uid, new Entry(stamp, occurrences));
+    }
+
+    //Удаляет записи событий, которых больше нет в календаре
+    public void retainOnly(String accountId, Set<String> uids) {
+        Map<String, Entry> entries = entriesByAccount.get(accountId);
+        if (entries != null) {
+            entries.keySet().retainAll(uids);
+        }
+    }
+
+    public void evictAccount(String accountId) {
+        entriesByAccount.remove(accountId);
+    }
+
+    public int size() {
+        return entriesByAccount.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Версия мастер-события и окна, для которой посчитаны повторения.
+     */
+    public record Stamp(String etag, int sequence, long windowStart, long windowEnd) {
+    }
+
+    private record Entry(Stamp stamp, Occurrences occurrences) {
+    }
+
+    /**
+     * Повторения в виде примитивных массивов epoch millis.
+     * overriddenIds - отсортированные RECURRENCE-ID экземпляров, заменённых отдельными VEVENT.
+     */
+    public static final class Occurrences {
+
+        private final long[] starts;
+        private final long[] ends;
+        private final long[] overriddenIds;
+
+        private Occurrences(long[] starts, long[] ends, long[] overriddenIds) {
+            this.starts = starts;
+            this.ends = ends;
+            this.overriddenIds = overriddenIds;
+        }
+
+        public static Occurrences from(PeriodList periods, Collection<Long> overriddenIds) {
+            long[] starts = new long[periods.size()];
+            long[] ends = new long[periods.size()];
+
+            int i = 0;
+            for (Object periodObj : periods) {
+                Period period = (Period) periodObj;
+                DateTime end = period.getEnd();
+                starts[i] = period.getStart().getTime();
+                ends[i] = end != null ? end.getTime() : starts[i];
+                i++;
+            }
+
+            long[] overrides = overriddenIds.stream().mapToLong(Long::longValue).sorted().toArray();
+            return new Occurrences(starts, ends, overrides);
+        }
+
+        public int size() {
+            return starts.length;
+        }
+
+        public long start(int index) {
+            return starts[index];
+        }
+
+        public long end(int index) {
+            return ends[index];
+        }
+
+        public boolean isOverridden(int index) {
+            return Arrays.binarySearch(overriddenIds, starts[index]) >= 0;
+        }
+    }
+}
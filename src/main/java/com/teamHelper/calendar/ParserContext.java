@@ -0,0 +1,97 @@
+package com.teamHelper.calendar;
+
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.data.ParserException;
+import net.fortuna.ical4j.model.Calendar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Всё, что нужно для разбора календарей и что дорого создавать на каждый блок:
+ * общие ZoneId и форматтеры и привязанные к потоку CalendarBuilder (с его реестром часовых поясов)
+ * и буфер нормализации calendar-data.
+ * Календари опрашиваются параллельно в пуле caldav-fetch, поэтому у каждого потока свой контекст,
+ * а блокировок нет вовсе.
+ */
+final class ParserContext {
+
+    static final ZoneId ZONE = ZoneId.of("Europe/Moscow");
+    static final DateTimeFormatter ICAL_UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    // Буфер больше этого не держим за потоком, чтобы один огромный календарь не занимал память навсегда
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    private static final ThreadLocal<ParserContext> CURRENT = ThreadLocal.withInitial(ParserContext::new);
+
+    private CalendarBuilder calendarBuilder = new CalendarBuilder();
+    private StringBuilder buffer = new StringBuilder(4096);
+
+    private ParserContext() {
+    }
+
+    static ParserContext current() {
+        return CURRENT.get();
+    }
+
+    //null - пустой calendar-data
+    Calendar parseCalendarData(String calendarData) throws IOException, ParserException {
+        String icalContent = normalize(calendarData);
+        if (icalContent.isEmpty()) return null;
+
+        return build(new StringReader(icalContent));
+    }
+
+    Calendar parse(InputStream content) throws IOException, ParserException {
+        try {
+            return calendarBuilder.build(content);
+        } catch (IOException | ParserException | RuntimeException e) {
+            // После ошибки в середине разбора состояние билдера не гарантировано
+            calendarBuilder = new CalendarBuilder();
+            throw e;
+        }
+    }
+
+    private Calendar build(StringReader reader) throws IOException, ParserException {
+        try {
+            return calendarBuilder.build(reader);
+        } catch (IOException | ParserException | RuntimeException e) {
+            calendarBuilder = new CalendarBuilder();
+            throw e;
+        }
+    }
+
+    /**
+     * То же, что trim().replaceAll("\r", "").replaceAll("\n ", "\n"), но за один проход без регулярных выражений:
+     * убирает CR и первый пробел после каждого перевода строки.
+     */
+    String normalize(String calendarData) {
+        int start = 0;
+        int end = calendarData.length();
+        while (start < end && calendarData.charAt(start) <= ' ') start++;
+        while (end > start && calendarData.charAt(end - 1) <= ' ') end--;
+
+        StringBuilder out = buffer;
+        out.setLength(0);
+        boolean afterNewline = false;
+        for (int i = start; i < end; i++) {
+            char c = calendarData.charAt(i);
+            if (c == '\r') continue;
+            if (c == ' ' && afterNewline) {
+                afterNewline = false;
+                continue;
+            }
+            afterNewline = c == '\n';
+            out.append(c);
+        }
+
+        String result = out.toString();
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            buffer = new StringBuilder(4096);
+        }
+        return result;
+    }
+}
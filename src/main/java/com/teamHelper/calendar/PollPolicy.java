@@ -0,0 +1,25 @@
+package com.teamHelper.calendar;
+
+/**
+ * Расчёт интервала до следующего опроса календаря.
+ * Пока календарь не меняется, интервал удваивается от minIntervalMs до maxIntervalMs.
+ * Перед ближайшим напоминанием интервал сжимается до половины оставшегося времени,
+ * чтобы перенос или отмену встречи увидеть до срабатывания таймера.
+ * После ошибок - экспоненциальная пауза до maxBackoffMs.
+ */
+public record PollPolicy(long minIntervalMs, long maxIntervalMs, long maxBackoffMs) {
+
+    //msUntilNextReminder == null - напоминаний впереди нет
+    public long afterSuccess(int unchangedStreak, Long msUntilNextReminder) {
+        long interval = Math.min(maxIntervalMs, minIntervalMs << Math.min(unchangedStreak, 20));
+
+        if (msUntilNextReminder != null && msUntilNextReminder > 0) {
+            interval = Math.min(interval, Math.max(minIntervalMs, msUntilNextReminder / 2));
+        }
+        return interval;
+    }
+
+    public long afterFailure(int consecutiveErrors) {
+        return Math.min(maxBackoffMs, minIntervalMs << Math.min(Math.max(consecutiveErrors - 1, 0), 20));
+    }
+}
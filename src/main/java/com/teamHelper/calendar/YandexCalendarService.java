@@ -1,26 +1,25 @@
-
 package com.teamHelper.calendar;
 
-import com.teamHelper.bot.BotComponent;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarAccountsChangedEvent;
 import com.teamHelper.config.CalendarAccountsProperties;
 import com.teamHelper.model.CalendarEvent;
-import jakarta.annotation.PostConstruct;
+import com.teamHelper.notification.CatchUpService;
+import com.teamHelper.notification.NotificationScheduler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
-import static com.teamHelper.calendar.CalendarConstants.WORK_END;
-import static com.teamHelper.calendar.CalendarConstants.WORK_START;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -28,104 +27,81 @@ import static com.teamHelper.calendar.CalendarConstants.WORK_START;
 public class YandexCalendarService {
 
     private final CalendarAccountsProperties calendarAccounts;
-    private final YandexCalDavService calDavService;
-    private final BotComponent bot;
-    private final Map<String, LocalDateTime> sentEventTimestamps = new ConcurrentHashMap<>();
-
-    @Scheduled(cron = "0 * * * * *") // Каждую минуту
-    public void updateCalendar() {
-        LocalTime now = LocalTime.now();
-        if (now.isBefore(WORK_START) || now.isAfter(WORK_END)) {
-            //спим вне рабочего времени
-            return;
-        }
-
-        log.info("Старт YandexCalendarService");
+    private final CalendarFetchEngine fetchEngine;
+    private final NotificationScheduler notificationScheduler;
+    private final EventStore eventStore;
+    private final CatchUpService catchUp;
+    private final ApplicationEventPublisher eventPublisher;
+
+    //Опрашивает переданные календари и переставляет их напоминания; вызывается AdaptivePollScheduler
+    public CalendarFetchEngine.FetchResult refresh(List<CalendarAccountConfig> accounts) {
+        log.info("Опрос {} календарей", accounts.size());
+        // Позавчерашние события выпадают из окна (вчерашние нужны для проверки пропущенных)
+        eventStore.evictBefore(LocalDate.now().minusDays(1).atStartOfDay());
         List<CalendarEvent> allEvents = new ArrayList<>();
 
-        for (var account : calendarAccounts.getAccounts()) {
-            try {
-                log.debug("Подключаюсь к календарю {}", account.getId());
-                List<CalendarEvent> events = calDavService.getUpcomingEvents(account);
-
-                List<CalendarEvent> todayEvents = events.stream()
-                        .filter(e -> e.getStart().toLocalDate().equals(LocalDate.now()))
-                        .toList();
-
-                todayEvents.forEach(event -> {
-                    if (shouldSendNotification(event)) {
-                        String key = event.getId() + "_" + event.getStart().truncatedTo(ChronoUnit.MINUTES);
-                        if (!sentEventTimestamps.containsKey(key)) {
-                            bot.sendCalendarNotification(event, account.getTelegramChatId(), account.getMmChatId());
-                            sentEventTimestamps.put(key, event.getStart());
-                        }
-                    }
-                });
-
+        CalendarFetchEngine.FetchResult fetchResult = fetchEngine.fetchAll(accounts);
+        Map<String, Integer> changesByAccount = new HashMap<>();
+
+        // Под замком, чтобы календарь, удалённый во время опроса, не вернул свои напоминания
+        synchronized (this) {
+            Set<String> configured = configuredIds();
+            List<CalendarAccountConfig> synced = new ArrayList<>();
+            for (var account : accounts) {
+                List<CalendarEvent> events = fetchResult.eventsByAccount().get(account.getId());
+                if (events == null || !configured.contains(account.getId())) {
+                    // Аккаунт не ответил (его таймеры остаются как были) или уже удалён из конфигурации
+                    continue;
+                }
+
+                int changes = eventStore.replace(account.getId(), events);
+                changesByAccount.put(account.getId(), changes);
+                if (changes > 0) {
+                    eventPublisher.publishEvent(new CalendarEventsChangedEvent(account.getId()));
+                }
+                List<CalendarEvent> todayEvents = todayEvents(account.getId());
+
+                notificationScheduler.reconcile(account, todayEvents);
+                if (!fetchResult.stale().contains(account.getId())) {
+                    // Снимок из кэша после ошибки не в счёт: пропущенные за это время напоминания ещё не видны
+                    synced.add(account);
+                }
+
+                log.debug("Календарь {}: {} событий в окне, изменений {}", account.getId(), events.size(), changes);
                 log.info("Получено {} событий из календаря {}", todayEvents.size(), account.getId());
                 allEvents.addAll(todayEvents);
-            } catch (Exception e) {
-                log.error("Ошибка при получении событий из календаря {}: {}", account.getId(), e.getMessage(), e);
             }
+            catchUp.onSynced(synced, LocalDateTime.now());
         }
 
-        log.info("Календарь обновлён: {} событий", allEvents.size());
+        log.info("Календари обновлены: {} событий, запланировано напоминаний: {}",
+                allEvents.size(), notificationScheduler.pendingCount());
+        return fetchResult.withChanges(changesByAccount);
     }
 
-    private boolean shouldSendNotification(CalendarEvent event) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime inFiveMinutes = now.plusMinutes(5);
-        String key = event.getId() + "_" + event.getStart().truncatedTo(ChronoUnit.MINUTES);
-
-        return !sentEventTimestamps.containsKey(key)
-                && event.getStart().isAfter(now)
-                && event.getStart().isBefore(inFiveMinutes);
-    }
-
-    @PostConstruct
-    public void init() {
-        LocalTime now = LocalTime.now();
-        if (!now.isBefore(WORK_START) && !now.isAfter(WORK_END)) {
-            checkMissedEventsOnStart();
+    @EventListener
+    public void onAccountsChanged(CalendarAccountsChangedEvent event) {
+        for (CalendarAccountConfig account : event.removed()) {
+            release(account);
+            log.info("Календарь {} удалён из конфигурации", account.getId());
         }
     }
 
-    public void checkMissedEventsOnStart() {
-        log.info("🔎 Проверка пропущенных событий при старте бота");
-
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime inFiveMinutes = now.plusMinutes(5);
-
-        calendarAccounts.getAccounts().forEach(account -> {
-            log.debug("Проверка календаря {} → {}", account.getId(), account.getUrl());
-            try {
-                List<CalendarEvent> events = calDavService.getUpcomingEvents(account);
-                List<CalendarEvent> missed = events.stream()
-                        .filter(event -> {
-                            LocalDateTime start = event.getStart();
-                            return start.isAfter(now) && start.isBefore(inFiveMinutes);
-                        })
-                        .toList();
-
-                log.info("Пропущено {} событий из календаря {}", missed.size(), account.getId());
-
-                missed.forEach(event -> {
-                    String key = event.getId() + "_" + event.getStart().truncatedTo(ChronoUnit.MINUTES);
-                    if (!sentEventTimestamps.containsKey(key)) {
-                        bot.sendCalendarNotification(event, account.getTelegramChatId(),  account.getMmChatId());
-                        sentEventTimestamps.put(key, event.getStart());
-                    }
-                });
+    //Календарь больше не обслуживается этим узлом: уходит из хранилища вместе со своими напоминаниями
+    public synchronized void release(CalendarAccountConfig account) {
+        eventStore.removeAccount(account.getId());
+        notificationScheduler.reconcile(account, List.of());
+        eventPublisher.publishEvent(new CalendarEventsChangedEvent(account.getId()));
+    }
 
-            } catch (Exception e) {
-                log.error("Ошибка при проверке событий календаря {}: {}", account.getId(), e.getMessage());
-            }
-        });
+    private Set<String> configuredIds() {
+        Set<String> ids = new HashSet<>();
+        calendarAccounts.getAccounts().forEach(account -> ids.add(account.getId()));
+        return ids;
     }
 
-    @Scheduled(cron = "0 0 0 * * *")  // Каждый день в полночь
-    public void cleanupSentEvents() {
-        LocalDateTime threshold = LocalDateTime.now().minusDays(1);
-        sentEventTimestamps.entrySet().removeIf(entry -> entry.getValue().isBefore(threshold));
+    private List<CalendarEvent> todayEvents(String accountId) {
+        LocalDate today = LocalDate.now();
+        return eventStore.between(accountId, today.atStartOfDay(), today.plusDays(1).atStartOfDay());
     }
-}
\ No newline at end of file
+}
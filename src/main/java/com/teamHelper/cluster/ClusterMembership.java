@@ -0,0 +1,175 @@
+package com.teamHelper.cluster;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Участие экземпляра бота в кластере (cluster.enabled).
+ * Узлы делят календари консистентным хешированием id ({@link HashRing}) и договариваются через таблицу
+ * cluster_members в общей БД: каждый узел раз в heartbeat-ms продлевает свою аренду на lease-ms,
+ * узел с истёкшей арендой выпадает из кольца, и его календари переходят к остальным.
+ * Узел, который сам не смог продлить аренду, перестаёт считать своими любые календари.
+ * Без кластера узел владеет всеми календарями.
+ */
+@Slf4j
+@Component
+public class ClusterMembership implements MeterBinder {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long heartbeatMs;
+    private final long leaseMs;
+    private final LongSupplier clockMs;
+
+    private volatile HashRing ring = new HashRing(List.of(), VIRTUAL_NODES);
+    private volatile long leaseValidUntil;
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public ClusterMembership(JdbcTemplate jdbcTemplate,
+                             @Value("${cluster.enabled:false}") boolean enabled,
+                             @Value("${cluster.node-id:}") String nodeId,
+                             @Value("${cluster.heartbeat-ms:5000}") long heartbeatMs,
+                             @Value("${cluster.lease-ms:15000}") long leaseMs) {
+        this(jdbcTemplate, enabled, nodeId, heartbeatMs, leaseMs, System::currentTimeMillis);
+    }
+
+    ClusterMembership(JdbcTemplate jdbcTemplate, boolean enabled, String nodeId,
+                      long heartbeatMs, long leaseMs, LongSupplier clockMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        // По умолчанию pid@hostname: в Docker имя хоста - id контейнера, оно разное у реплик
+        this.nodeId = nodeId == null || nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId.trim();
+        this.heartbeatMs = heartbeatMs;
+        this.leaseMs = Math.max(leaseMs, heartbeatMs * 2);
+        this.clockMs = clockMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS cluster_members (
+                    node_id     VARCHAR(255) PRIMARY KEY,
+                    lease_until BIGINT       NOT NULL
+                )""");
+        heartbeat();
+
+        // Свой поток, а не @Scheduled: общий планировщик однопоточный, и долгий опрос календарей задержал бы аренду
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cluster-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::renewLease, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        log.info("Узел {} вошёл в кластер, участники: {}", nodeId, ring.members());
+    }
+
+    //true - календарь опрашивает и напоминает этот узел
+    public boolean owns(String accountId) {
+        if (!enabled) {
+            return true;
+        }
+        if (clockMs.getAsLong() >= leaseValidUntil) {
+            // Аренда не продлена - календари этого узла уже могут забрать другие
+            return false;
+        }
+        return nodeId.equals(ring.owner(accountId));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public List<String> members() {
+        return ring.members();
+    }
+
+    /**
+     * Продлевает аренду своего узла, удаляет давно умершие узлы и перестраивает кольцо по живым.
+     * Время аренды - часы узлов в epoch millis, поэтому часы реплик должны быть синхронизированы (NTP);
+     * запас lease-ms против heartbeat-ms покрывает и расхождение часов, и паузы GC.
+     */
+    void heartbeat() {
+        long now = clockMs.getAsLong();
+        long leaseUntil = now + leaseMs;
+        if (jdbcTemplate.update("UPDATE cluster_members SET lease_until = ? WHERE node_id = ?", leaseUntil, nodeId) == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO cluster_members (node_id, lease_until) VALUES (?, ?)", nodeId, leaseUntil);
+            } catch (DuplicateKeyException e) {
+                // Узел с тем же id успел вставить строку - значит, id не уникален
+                log.warn("⚠️ Узел {} уже зарегистрирован в кластере, проверьте cluster.node-id", nodeId);
+            }
+        }
+        leaseValidUntil = leaseUntil;
+
+        jdbcTemplate.update("DELETE FROM cluster_members WHERE lease_until < ?", now - leaseMs);
+        List<String> alive = jdbcTemplate.queryForList(
+                "SELECT node_id FROM cluster_members WHERE lease_until > ?", String.class, now);
+
+        HashRing next = new HashRing(alive, VIRTUAL_NODES);
+        if (!ring.members().isEmpty() && !next.members().equals(ring.members())) {
+            log.info("Состав кластера изменился: {} → {}", ring.members(), next.members());
+        }
+        ring = next;
+    }
+
+    private void renewLease() {
+        try {
+            heartbeat();
+        } catch (Exception e) {
+            log.error("Не удалось продлить аренду узла {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("cluster.members", this, membership -> membership.members().size())
+                .description("Живые узлы кластера")
+                .register(registry);
+        Gauge.builder("cluster.lease.valid", this, membership -> membership.clockMs.getAsLong() < membership.leaseValidUntil ? 1 : 0)
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        try {
+            // Уходим сразу, не дожидаясь истечения аренды: остальные узлы заберут календари на следующем heartbeat
+            jdbcTemplate.update("DELETE FROM cluster_members WHERE node_id = ?", nodeId);
+        } catch (Exception e) {
+            log.warn("Не удалось выйти из кластера: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.teamHelper.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Консистентное хеширование id календарей по узлам кластера.
+ * У каждого узла virtualNodes точек на кольце, ключ принадлежит первой точке по часовой стрелке.
+ * При уходе или приходе узла переезжает только его доля календарей, остальные остаются на месте.
+ * Неизменяемый: при смене состава строится новое кольцо.
+ */
+public final class HashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final List<String> members;
+
+    public HashRing(Collection<String> members, int virtualNodes) {
+        this.members = List.copyOf(new TreeSet<>(members));
+        for (String member : this.members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    //Узел-владелец ключа; null - кольцо пустое
+    public String owner(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<String> members() {
+        return members;
+    }
+
+    // FNV-1a с перемешиванием из MurmurHash3: у String.hashCode точки node#0, node#1... ложатся на кольцо кучно
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -8,4 +8,14 @@ public class CalendarAccountConfig {
     private final String url;
     private final Long telegramChatId;
     private final String mmChatId;
+
+    // Провайдер из CalendarSourceRegistry: yandex, caldav или ics
+    private String provider = "yandex";
+
+    // Свои учётные данные календаря, null - общие учётные данные провайдера
+    private CalendarCredentials credentials;
+
+    // Переопределение тайм-аутов CalDAV для медленного календаря, null - значения по умолчанию
+    private Integer connectTimeoutMs;
+    private Integer readTimeoutMs;
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.teamHelper.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Разница двух снимков {@link CalendarAccountsProperties}, публикуется после перечитывания файла календарей.
+ * changed - аккаунты с прежним id, у которых поменялись URL, чаты, провайдер, учётные данные или тайм-ауты.
+ */
+public record CalendarAccountsChangedEvent(List<CalendarAccountConfig> added,
+                                           List<CalendarAccountConfig> removed,
+                                           List<CalendarAccountConfig> changed) {
+
+    static CalendarAccountsChangedEvent between(List<CalendarAccountConfig> before, List<CalendarAccountConfig> after) {
+        Map<String, CalendarAccountConfig> previous = new LinkedHashMap<>();
+        before.forEach(account -> previous.put(account.getId(), account));
+
+        List<CalendarAccountConfig> added = new ArrayList<>();
+        List<CalendarAccountConfig> changed = new ArrayList<>();
+        for (CalendarAccountConfig account : after) {
+            CalendarAccountConfig old = previous.remove(account.getId());
+            if (old == null) {
+                added.add(account);
+            } else if (!Objects.equals(old, account)) {
+                changed.add(account);
+            }
+        }
+        return new CalendarAccountsChangedEvent(List.copyOf(added), List.copyOf(previous.values()), List.copyOf(changed));
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package com.teamHelper.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import lombok.Data;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Календари из файла calendar.accounts.file, YAML или JSON (по расширению .json):
+ * <pre>
+ * calendars:
+ *   - id: team-events
+ *     url: https://caldav.yandex.ru/calendars/itTeamHelper@yandex.com/events-11111/
+ *     telegramChatId: -222222222
+ *     mmChatId: abcdef
+ *     provider: caldav          # дальше всё необязательно, как и у CALENDAR_n_*
+ *     username: robot-2@yandex.ru
+ *     password: secret
+ *     connectTimeoutMs: 5000
+ *     readTimeoutMs: 20000
+ * </pre>
+ * Неизвестное поле - ошибка всего файла, чтобы опечатка не превращалась в молча пропавший календарь.
+ */
+@Slf4j
+final class CalendarAccountsFile {
+
+    private static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory());
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private CalendarAccountsFile() {
+    }
+
+    static List<CalendarAccountConfig> read(Path file) throws IOException {
+        ObjectMapper mapper = file.getFileName().toString().endsWith(".json") ? JSON : YAML;
+        byte[] content = Files.readAllBytes(file);
+        Content parsed = content.length == 0 ? null : mapper.readValue(content, Content.class);
+        if (parsed == null || parsed.getCalendars() == null) {
+            return List.of();
+        }
+
+        List<CalendarAccountConfig> accounts = new ArrayList<>();
+        int position = 0;
+        for (Entry entry : parsed.getCalendars()) {
+            position++;
+            if (entry.getId() == null || entry.getUrl() == null
+                    || entry.getTelegramChatId() == null || entry.getMmChatId() == null) {
+                log.warn("⚠️ Пропущен календарь #{} в {}: нужны id, url, telegramChatId и mmChatId", position, file);
+                continue;
+            }
+            CalendarAccountConfig config = new CalendarAccountConfig(entry.getId(), entry.getUrl(),
+                    entry.getTelegramChatId(), entry.getMmChatId());
+            if (entry.getProvider() != null && !entry.getProvider().isBlank()) {
+                config.setProvider(entry.getProvider().trim().toLowerCase());
+            }
+            if (entry.getUsername() != null && !entry.getUsername().isBlank()) {
+                config.setCredentials(new CalendarCredentials(entry.getUsername(),
+                        entry.getPassword() != null ? entry.getPassword() : ""));
+            }
+            config.setConnectTimeoutMs(entry.getConnectTimeoutMs());
+            config.setReadTimeoutMs(entry.getReadTimeoutMs());
+            accounts.add(config);
+        }
+        return accounts;
+    }
+
+    @Data
+    static class Content {
+        private List<Entry> calendars;
+    }
+
+    @Data
+    static class Entry {
+        private String id;
+        private String url;
+        private Long telegramChatId;
+        private String mmChatId;
+        private String provider;
+        private String username;
+        @ToString.Exclude
+        private String password;
+        private Integer connectTimeoutMs;
+        private Integer readTimeoutMs;
+    }
+}
@@ -1,23 +1,164 @@
 package com.teamHelper.config;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Реестр календарей: CALENDAR_n_* из окружения плюс необязательный файл calendar.accounts.file.
+ * Файл отслеживается через WatchService и перечитывается без перезапуска; при совпадении id побеждает файл.
+ * {@link #getAccounts()} отдаёт неизменяемый снимок, который перечитывание подменяет целиком,
+ * а разницу снимков рассылает событием {@link CalendarAccountsChangedEvent}.
+ */
 @Slf4j
 @Component
-@Getter
 public class CalendarAccountsProperties {
 
-    private final List<CalendarAccountConfig> accounts = new ArrayList<>();
+    // Редакторы и kubectl пишут файл в несколько приёмов - перечитываем, когда запись утихнет
+    private static final long RELOAD_DEBOUNCE_MS = 300;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path accountsFile;
+    private final List<CalendarAccountConfig> envAccounts = new ArrayList<>();
+
+    @Getter
+    private volatile List<CalendarAccountConfig> accounts = List.of();
+
+    private WatchService watchService;
+    private Thread watcher;
+
+    public CalendarAccountsProperties(ApplicationEventPublisher eventPublisher,
+                                      @Value("${calendar.accounts.file:}") String accountsFile) {
+        this.eventPublisher = eventPublisher;
+        this.accountsFile = accountsFile == null || accountsFile.isBlank() ? null : Path.of(accountsFile.trim());
+    }
 
     @PostConstruct
     public void init() {
+        loadFromEnv();
+
+        List<CalendarAccountConfig> fileAccounts = List.of();
+        if (accountsFile != null) {
+            try {
+                fileAccounts = CalendarAccountsFile.read(accountsFile);
+            } catch (IOException e) {
+                log.error("⚠️ Не удалось прочитать файл календарей {}: {}", accountsFile, e.getMessage());
+            }
+            startWatcher();
+        }
+        accounts = merge(fileAccounts);
+        log.info("Календарей в работе: {}", accounts.size());
+    }
+
+    //Перечитывает файл и рассылает изменения; false - файл не прочитан, снимок остался прежним
+    public synchronized boolean reload() {
+        if (accountsFile == null) {
+            return false;
+        }
+        List<CalendarAccountConfig> fileAccounts;
+        try {
+            fileAccounts = CalendarAccountsFile.read(accountsFile);
+        } catch (NoSuchFileException e) {
+            log.warn("⚠️ Файл календарей {} пропал, календари не изменились", accountsFile);
+            return false;
+        } catch (IOException e) {
+            log.error("⚠️ Ошибка в файле календарей {}, календари не изменились: {}", accountsFile, e.getMessage());
+            return false;
+        }
+
+        List<CalendarAccountConfig> next = merge(fileAccounts);
+        CalendarAccountsChangedEvent change = CalendarAccountsChangedEvent.between(accounts, next);
+        accounts = next;
+        if (!change.isEmpty()) {
+            log.info("✅ Календари обновлены: добавлено {}, удалено {}, изменено {}",
+                    change.added().size(), change.removed().size(), change.changed().size());
+            eventPublisher.publishEvent(change);
+        }
+        return true;
+    }
+
+    private List<CalendarAccountConfig> merge(List<CalendarAccountConfig> fileAccounts) {
+        Map<String, CalendarAccountConfig> merged = new LinkedHashMap<>();
+        envAccounts.forEach(account -> merged.put(account.getId(), account));
+        fileAccounts.forEach(account -> merged.put(account.getId(), account));
+        return List.copyOf(merged.values());
+    }
+
+    private void startWatcher() {
+        Path directory = accountsFile.toAbsolutePath().getParent();
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        } catch (IOException e) {
+            log.error("⚠️ Не удалось следить за {}: {}, изменения файла календарей применятся после перезапуска",
+                    directory, e.getMessage());
+            return;
+        }
+        watcher = new Thread(this::watch, "calendar-accounts-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+                Thread.sleep(RELOAD_DEBOUNCE_MS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            // Имя файла не сверяем: ConfigMap меняет симлинк ..data, а лишнее перечитывание отсеет разница снимков
+            key.pollEvents();
+            boolean valid = key.reset();
+
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                log.error("Ошибка при применении новых календарей: {}", e.getMessage(), e);
+            }
+            if (!valid) {
+                log.error("⚠️ Каталог файла календарей {} больше недоступен, слежение остановлено", accountsFile);
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Ошибка при закрытии WatchService: {}", e.getMessage());
+            }
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    private void loadFromEnv() {
         int count = Integer.parseInt(Optional.ofNullable(System.getenv("CALENDAR_COUNT")).orElse("0"));
 
         for (int i = 1; i <= count; i++) {
@@ -40,9 +181,33 @@ public class CalendarAccountsProperties {
             }
 
             CalendarAccountConfig config = new CalendarAccountConfig(id, url, chatId, mmChatIdStr);
-            accounts.add(config);
+            String provider = System.getenv("CALENDAR_" + i + "_PROVIDER");
+            if (provider != null && !provider.isBlank()) {
+                config.setProvider(provider.trim().toLowerCase());
+            }
+            String username = System.getenv("CALENDAR_" + i + "_USERNAME");
+            if (username != null && !username.isBlank()) {
+                config.setCredentials(new CalendarCredentials(username,
+                        Optional.ofNullable(System.getenv("CALENDAR_" + i + "_PASSWORD")).orElse("")));
+            }
+            config.setConnectTimeoutMs(parseTimeout(id, "CALENDAR_" + i + "_CONNECT_TIMEOUT_MS"));
+            config.setReadTimeoutMs(parseTimeout(id, "CALENDAR_" + i + "_READ_TIMEOUT_MS"));
+            envAccounts.add(config);
 
-            log.info("✅ Загружена конфигурация календаря {} → чат {} и {}", id, chatId, mmChatIdStr);
+            log.info("✅ Загружена конфигурация календаря {} ({}) → чат {} и {}", id, config.getProvider(), chatId, mmChatIdStr);
+        }
+    }
+
+    private Integer parseTimeout(String id, String variable) {
+        String value = System.getenv(variable);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("⚠️ Неверный формат {} для календаря {}: {}", variable, id, value);
+            return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.teamHelper.config;
+
+/**
+ * Логин и пароль учётной записи календаря. Пароль не попадает в toString и логи.
+ */
+public record CalendarCredentials(String username, String password) {
+
+    @Override
+    public String toString() {
+        return "CalendarCredentials[username=" + username + "]";
+    }
+}
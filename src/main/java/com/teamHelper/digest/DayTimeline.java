@@ -0,0 +1,76 @@
+package com.teamHelper.digest;
+
+import com.teamHelper.calendar.FreeBusyIndex;
+import com.teamHelper.model.CalendarEvent;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * День одного чата: встречи по порядку, занятые промежутки и свободные окна в рабочие часы.
+ * Занятость - минутный битсет {@link FreeBusyIndex}: готовый из индекса, если все календари чата
+ * лежат на этом узле, иначе собранный по тем же правилам из переданных событий.
+ * Пересекающиеся и стыкующиеся встречи склеиваются в один занятый промежуток.
+ */
+public final class DayTimeline {
+
+    // Окна короче этого в сводке не показываем
+    static final Duration MIN_FREE_SLOT = Duration.ofMinutes(15);
+
+    private final LocalDate date;
+    private final List<CalendarEvent> meetings;
+    private final List<FreeBusyIndex.Slot> busy;
+    private final List<FreeBusyIndex.Slot> free;
+
+    private DayTimeline(LocalDate date, List<CalendarEvent> meetings,
+                        List<FreeBusyIndex.Slot> busy, List<FreeBusyIndex.Slot> free) {
+        this.date = date;
+        this.meetings = meetings;
+        this.busy = busy;
+        this.free = free;
+    }
+
+    //events - события, начинающиеся в этот день; встречи без начала пропускаются
+    public static DayTimeline build(LocalDate date, Collection<CalendarEvent> events,
+                                    LocalTime workStart, LocalTime workEnd) {
+        return build(date, events, FreeBusyIndex.busyMinutes(events, date), workStart, workEnd);
+    }
+
+    //busyMinutes - занятость дня по минутам, например общая для календарей чата из FreeBusyIndex
+    public static DayTimeline build(LocalDate date, Collection<CalendarEvent> events, BitSet busyMinutes,
+                                    LocalTime workStart, LocalTime workEnd) {
+        List<CalendarEvent> meetings = new ArrayList<>();
+        for (CalendarEvent event : events) {
+            if (event.getStart() != null) {
+                meetings.add(event);
+            }
+        }
+        meetings.sort(Comparator.comparing(CalendarEvent::getStart));
+
+        return new DayTimeline(date, List.copyOf(meetings),
+                List.copyOf(FreeBusyIndex.busySlots(busyMinutes, date)),
+                List.copyOf(FreeBusyIndex.freeSlots(busyMinutes, date, workStart, workEnd, MIN_FREE_SLOT)));
+    }
+
+    public LocalDate date() {
+        return date;
+    }
+
+    public List<CalendarEvent> meetings() {
+        return meetings;
+    }
+
+    public List<FreeBusyIndex.Slot> busy() {
+        return busy;
+    }
+
+    public List<FreeBusyIndex.Slot> free() {
+        return free;
+    }
+}
@@ -0,0 +1,102 @@
+package com.teamHelper.digest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.teamHelper.model.CalendarEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Снимки событий календарей для утренних сводок в кластере, в общей БД.
+ * Узел, который ведёт календарь, перезаписывает его снимок после каждого изменения,
+ * а узел, отправляющий сводку чата, берёт отсюда календари, которые ведут другие узлы, вместо запроса к CalDAV.
+ * Хранятся только поля, нужные сводке: id, название, начало и конец.
+ */
+@Slf4j
+@Component
+public class DigestCheckpoints {
+
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private static final TypeReference<List<Entry>> ENTRIES = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DigestCheckpoints(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS digest_checkpoints (
+                    account_id VARCHAR(255) PRIMARY KEY,
+                    taken_at   TIMESTAMP    NOT NULL,
+                    events     CLOB         NOT NULL
+                )""");
+    }
+
+    public void save(String accountId, Collection<CalendarEvent> events, LocalDateTime now) {
+        List<Entry> entries = new ArrayList<>(events.size());
+        for (CalendarEvent event : events) {
+            if (event.getStart() != null) {
+                entries.add(new Entry(event.getId(), event.getTitle(), event.getStart(), event.getEnd()));
+            }
+        }
+        try {
+            jdbcTemplate.update("MERGE INTO digest_checkpoints (account_id, taken_at, events) KEY (account_id) VALUES (?, ?, ?)",
+                    accountId, Timestamp.valueOf(now), JSON.writeValueAsString(entries));
+        } catch (Exception e) {
+            // Сводка возьмёт прежний снимок, а без него догрузит календарь сама
+            log.error("Ошибка записи снимка календаря {} для сводки: {}", accountId, e.getMessage());
+        }
+    }
+
+    //Снимки перечисленных календарей; календаря без снимка в ответе нет
+    public Map<String, List<CalendarEvent>> load(Collection<String> accountIds) {
+        Map<String, List<CalendarEvent>> result = new HashMap<>();
+        for (String accountId : accountIds) {
+            try {
+                List<String> rows = jdbcTemplate.queryForList(
+                        "SELECT events FROM digest_checkpoints WHERE account_id = ?", String.class, accountId);
+                if (rows.isEmpty()) {
+                    continue;
+                }
+                List<CalendarEvent> events = new ArrayList<>();
+                for (Entry entry : JSON.readValue(rows.get(0), ENTRIES)) {
+                    events.add(entry.toEvent());
+                }
+                result.put(accountId, events);
+            } catch (Exception e) {
+                log.error("Ошибка чтения снимка календаря {} для сводки: {}", accountId, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    record Entry(String id, String title, LocalDateTime start, LocalDateTime end) {
+
+        CalendarEvent toEvent() {
+            CalendarEvent event = new CalendarEvent();
+            event.setId(id);
+            event.setTitle(title);
+            event.setStart(start);
+            event.setEnd(end);
+            return event;
+        }
+    }
+}
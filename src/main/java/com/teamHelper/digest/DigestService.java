@@ -0,0 +1,220 @@
+package com.teamHelper.digest;
+
+import com.teamHelper.bot.BotComponent;
+import com.teamHelper.bot.DeliveryChannel;
+import com.teamHelper.bot.MessageBuilder;
+import com.teamHelper.calendar.CalendarEventsChangedEvent;
+import com.teamHelper.calendar.CalendarFetchEngine;
+import com.teamHelper.calendar.EventStore;
+import com.teamHelper.calendar.FreeBusyIndex;
+import com.teamHelper.cluster.ClusterMembership;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarAccountsProperties;
+import com.teamHelper.model.CalendarEvent;
+import com.teamHelper.notification.NotificationLedger;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.teamHelper.calendar.CalendarConstants.WORK_END;
+import static com.teamHelper.calendar.CalendarConstants.WORK_START;
+
+/**
+ * Утренняя сводка для каждого чата Telegram и Mattermost: встречи дня и свободные окна команды.
+ * Сводки строятся из событий, которые уже лежат в {@link EventStore}, и обновляются по
+ * {@link CalendarEventsChangedEvent} только для чатов изменившегося календаря, сразу в готовый текст.
+ * В момент digest.cron остаётся лишь поставить все тексты в очереди доставки одной пачкой, без запросов к CalDAV.
+ * В кластере календари, которые ведут другие узлы, берутся из их снимков ({@link DigestCheckpoints});
+ * CalDAV опрашивается только для календарей, у которых нет ни событий в памяти, ни снимка (холодный старт).
+ * Свободные окна берутся из {@link FreeBusyIndex}, когда в нём есть все календари чата.
+ */
+@Slf4j
+@Component
+public class DigestService {
+
+    private final CalendarAccountsProperties calendarAccounts;
+    private final EventStore eventStore;
+    private final FreeBusyIndex freeBusy;
+    private final CalendarFetchEngine fetchEngine;
+    private final MessageBuilder messageBuilder;
+    private final BotComponent bot;
+    private final NotificationLedger ledger;
+    private final ClusterMembership cluster;
+    private final DigestCheckpoints checkpoints;
+    private final CronExpression schedule;
+    private final Map<Audience, Prepared> prepared = new ConcurrentHashMap<>();
+
+    public DigestService(CalendarAccountsProperties calendarAccounts,
+                         EventStore eventStore,
+                         FreeBusyIndex freeBusy,
+                         CalendarFetchEngine fetchEngine,
+                         MessageBuilder messageBuilder,
+                         BotComponent bot,
+                         NotificationLedger ledger,
+                         ClusterMembership cluster,
+                         DigestCheckpoints checkpoints,
+                         @Value("${digest.cron:0 55 8 * * MON-FRI}") String cron) {
+        this.calendarAccounts = calendarAccounts;
+        this.eventStore = eventStore;
+        this.freeBusy = freeBusy;
+        this.fetchEngine = fetchEngine;
+        this.messageBuilder = messageBuilder;
+        this.bot = bot;
+        this.ledger = ledger;
+        this.cluster = cluster;
+        this.checkpoints = checkpoints;
+        // "-" отключает сводки, как и в самом @Scheduled
+        this.schedule = "-".equals(cron) ? null : CronExpression.parse(cron);
+    }
+
+    //Пересобирает сводки чатов изменившегося календаря на ближайший день отправки
+    @EventListener
+    public void onEventsChanged(CalendarEventsChangedEvent event) {
+        LocalDate date = nextDigestDate();
+        if (date == null) {
+            return;
+        }
+        String accountId = event.accountId();
+        if (cluster.isEnabled() && cluster.owns(accountId) && eventStore.contains(accountId)) {
+            checkpoints.save(accountId, eventStore.events(accountId), LocalDateTime.now());
+        }
+        audiences().forEach((audience, accountIds) -> {
+            if (accountIds.contains(accountId)) {
+                prepare(audience, accountIds, date, Map.of());
+            }
+        });
+    }
+
+    @Scheduled(cron = "${digest.cron:0 55 8 * * MON-FRI}")
+    public void sendDigests() {
+        send(LocalDate.now());
+    }
+
+    void send(LocalDate date) {
+        Map<Audience, Set<String>> audiences = audiences();
+        // В кластере сводку чата отправляет один узел
+        audiences.keySet().removeIf(audience -> !cluster.owns("digest/" + audience.channel() + "/" + audience.chatId()));
+
+        Map<String, List<CalendarEvent>> fetched = loadMissing(audiences.values());
+
+        int sent = 0;
+        for (Map.Entry<Audience, Set<String>> entry : audiences.entrySet()) {
+            Audience audience = entry.getKey();
+            Set<String> accountIds = entry.getValue();
+            Prepared ready = prepared.get(audience);
+            if (ready == null || !ready.date().equals(date) || !ready.accountIds().equals(accountIds)
+                    || accountIds.stream().anyMatch(fetched::containsKey)) {
+                ready = prepare(audience, accountIds, date, fetched);
+            }
+            if (ready.timeline().meetings().isEmpty()) {
+                log.debug("Сводка для {} {} пропущена: встреч нет", audience.channel(), audience.chatId());
+                continue;
+            }
+            if (!ledger.tryClaim("digest_" + audience.channel() + "_" + audience.chatId() + "_" + date, date.atTime(WORK_START))) {
+                continue;
+            }
+
+            bot.sendDigest(audience.channel(), audience.chatId(), ready.text());
+            Metrics.counter("digest.sent", "channel", audience.channel().name()).increment();
+            sent++;
+        }
+        log.info("Утренние сводки поставлены в очередь: {} из {} чатов", sent, audiences.size());
+    }
+
+    // Календарей нет в хранилище, если их ведёт другой узел кластера или бот перезапущен вне рабочих часов
+    private Map<String, List<CalendarEvent>> loadMissing(Collection<Set<String>> accountSets) {
+        Set<String> missing = new LinkedHashSet<>();
+        accountSets.forEach(missing::addAll);
+        missing.removeIf(eventStore::contains);
+        if (missing.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, List<CalendarEvent>> loaded = new HashMap<>();
+        if (cluster.isEnabled()) {
+            loaded.putAll(checkpoints.load(missing));
+        }
+        List<CalendarAccountConfig> cold = new ArrayList<>();
+        for (CalendarAccountConfig account : calendarAccounts.getAccounts()) {
+            if (missing.contains(account.getId()) && !loaded.containsKey(account.getId())) {
+                cold.add(account);
+            }
+        }
+        if (!cold.isEmpty()) {
+            log.warn("Для сводок догружаем из CalDAV {} календарей без событий в памяти и без снимка: {}",
+                    cold.size(), cold.stream().map(CalendarAccountConfig::getId).toList());
+            loaded.putAll(fetchEngine.fetchAll(cold).eventsByAccount());
+        }
+        return loaded;
+    }
+
+    private Prepared prepare(Audience audience, Set<String> accountIds, LocalDate date,
+                             Map<String, List<CalendarEvent>> fetched) {
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = date.plusDays(1).atStartOfDay();
+
+        // Один и тот же календарь может быть подключён к чату через несколько аккаунтов
+        Map<String, CalendarEvent> events = new LinkedHashMap<>();
+        for (String accountId : accountIds) {
+            List<CalendarEvent> accountEvents = fetched.containsKey(accountId)
+                    ? fetched.get(accountId)
+                    : eventStore.between(accountId, from, to);
+            for (CalendarEvent event : accountEvents) {
+                if (event.getStart() == null || event.getStart().isBefore(from) || !event.getStart().isBefore(to)) {
+                    continue;
+                }
+                events.putIfAbsent(event.getId() + "_" + event.getStart(), event);
+            }
+        }
+
+        // Индекс знает и встречи, начавшиеся накануне; календари других узлов считаются по событиям сводки
+        BitSet busy = freeBusy.commonBusy(accountIds, date)
+                .orElseGet(() -> FreeBusyIndex.busyMinutes(events.values(), date));
+        DayTimeline timeline = DayTimeline.build(date, events.values(), busy, WORK_START, WORK_END);
+        Prepared ready = new Prepared(date, accountIds, timeline, messageBuilder.renderDigest(timeline, audience.channel()));
+        prepared.put(audience, ready);
+        return ready;
+    }
+
+    private Map<Audience, Set<String>> audiences() {
+        Map<Audience, Set<String>> audiences = new LinkedHashMap<>();
+        for (CalendarAccountConfig account : calendarAccounts.getAccounts()) {
+            audiences.computeIfAbsent(new Audience(DeliveryChannel.TELEGRAM, account.getTelegramChatId().toString()),
+                    audience -> new LinkedHashSet<>()).add(account.getId());
+            audiences.computeIfAbsent(new Audience(DeliveryChannel.MATTERMOST, account.getMmChatId()),
+                    audience -> new LinkedHashSet<>()).add(account.getId());
+        }
+        return audiences;
+    }
+
+    private LocalDate nextDigestDate() {
+        if (schedule == null) {
+            return null;
+        }
+        LocalDateTime next = schedule.next(LocalDateTime.now());
+        return next != null ? next.toLocalDate() : null;
+    }
+
+    record Audience(DeliveryChannel channel, String chatId) {
+    }
+
+    private record Prepared(LocalDate date, Set<String> accountIds, DayTimeline timeline, String text) {
+    }
+}
@@ -1,4 +1,5 @@
 package com.teamHelper.model;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,7 +10,7 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Data
 @NoArgsConstructor
-public class CalendarEvent {
+public class CalendarEvent implements EventView {
     private String id;
     private String title;
     private String description;
@@ -19,6 +20,13 @@ public class CalendarEvent {
     private Location location;
     private List<Attendee> attendees;
 
+    @JsonIgnore
+    @Override
+    public String getLocationTitle() {
+        Location current = getLocation();
+        return current != null ? current.getTitle() : null;
+    }
+
     @Data
     public static class Location {
         private String title;
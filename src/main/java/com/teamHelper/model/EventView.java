@@ -0,0 +1,26 @@
+package com.teamHelper.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие только для чтения: то, что нужно для рендера сообщений.
+ * Реализуют обычный бин {@link CalendarEvent} и строки компактной таблицы событий,
+ * у которых нет своих полей и сеттеры не работают.
+ */
+public interface EventView {
+
+    String getId();
+
+    String getTitle();
+
+    String getDescription();
+
+    String getUrl();
+
+    LocalDateTime getStart();
+
+    LocalDateTime getEnd();
+
+    //Название места без промежуточного Location
+    String getLocationTitle();
+}
@@ -0,0 +1,152 @@
+package com.teamHelper.notification;
+
+import com.teamHelper.bot.BotComponent;
+import com.teamHelper.calendar.EventStore;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.model.CalendarEvent;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.teamHelper.calendar.CalendarConstants.NOTIFY_BEFORE_MINUTES;
+
+/**
+ * Досылает напоминания, срок которых пришёлся на простой бота или на полосу неудачных опросов календаря.
+ * Время последнего успешного опроса каждого календаря хранится в таблице poll_checkpoints.
+ * После очередного успешного опроса пропущенными считаются неотправленные напоминания о событиях,
+ * начавшихся с того момента: таймеры NotificationScheduler до них уже не дотянутся.
+ * С ними поступают по {@link ReplayPolicy}, а отправка идёт через асинхронные очереди доставки.
+ */
+@Slf4j
+@Component
+public class CatchUpService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationLedger ledger;
+    private final BotComponent bot;
+    private final EventStore eventStore;
+    private final ReplayPolicy policy;
+    private final Map<String, LocalDateTime> lastSynced = new ConcurrentHashMap<>();
+
+    public CatchUpService(JdbcTemplate jdbcTemplate,
+                          NotificationLedger ledger,
+                          BotComponent bot,
+                          EventStore eventStore,
+                          @Value("${catchup.max-age-ms:1800000}") long maxAgeMs,
+                          @Value("${catchup.summarize-over:3}") int summarizeOver) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ledger = ledger;
+        this.bot = bot;
+        this.eventStore = eventStore;
+        this.policy = new ReplayPolicy(Duration.ofMillis(maxAgeMs), summarizeOver);
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS poll_checkpoints (
+                    account_id  VARCHAR(255) PRIMARY KEY,
+                    last_synced TIMESTAMP    NOT NULL
+                )""");
+        jdbcTemplate.query("SELECT account_id, last_synced FROM poll_checkpoints",
+                rs -> {
+                    lastSynced.put(rs.getString(1), rs.getTimestamp(2).toLocalDateTime());
+                });
+    }
+
+    //Только сообщает о простое: сами напоминания досылаются после первого успешного опроса каждого календаря
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        lastSynced.values().stream().max(LocalDateTime::compareTo).ifPresent(last ->
+                log.info("Последний успешный опрос перед стартом: {} ({} мин назад), пропущенные напоминания будут досланы",
+                        last, Duration.between(last, LocalDateTime.now()).toMinutes()));
+    }
+
+    //Вызывается после успешного опроса календарей, когда их события в EventStore свежие
+    public void onSynced(List<CalendarAccountConfig> accounts, LocalDateTime now) {
+        for (CalendarAccountConfig account : accounts) {
+            LocalDateTime since = lastSynced.put(account.getId(), now);
+            if (since != null && since.isBefore(now)) {
+                replay(account, since, now);
+            }
+        }
+        save(accounts, now);
+    }
+
+    LocalDateTime lastSynced(String accountId) {
+        return lastSynced.get(accountId);
+    }
+
+    private void replay(CalendarAccountConfig account, LocalDateTime since, LocalDateTime now) {
+        // Напоминания о событиях, начавшихся до since + NOTIFY_BEFORE_MINUTES, были запланированы ещё при прошлом опросе,
+        // а о событиях, которые ещё не начались, позаботится NotificationScheduler
+        List<CalendarEvent> missed = new ArrayList<>();
+        for (CalendarEvent event : eventStore.between(account.getId(), since.plusMinutes(NOTIFY_BEFORE_MINUTES), now)) {
+            if (!ledger.isSent(NotificationScheduler.notificationKey(event))) {
+                missed.add(event);
+            }
+        }
+        if (missed.isEmpty()) {
+            return;
+        }
+
+        ReplayPolicy.Plan plan = policy.plan(missed, now);
+        int late = 0;
+        for (CalendarEvent event : plan.late()) {
+            if (claim(event)) {
+                bot.sendCalendarNotification(event, account.getTelegramChatId(), account.getMmChatId());
+                late++;
+            }
+        }
+        List<CalendarEvent> summary = plan.summary().stream().filter(this::claim).toList();
+        if (!summary.isEmpty()) {
+            bot.sendMissedSummary(summary, account.getTelegramChatId(), account.getMmChatId());
+        }
+
+        count("late", late);
+        count("summarized", summary.size());
+        count("dropped", plan.dropped().size());
+        log.info("Календарь {}: пропущено напоминаний с {}: {}, дослано {}, в сводке {}, отброшено {}",
+                account.getId(), since, missed.size(), late, summary.size(), plan.dropped().size());
+    }
+
+    private boolean claim(CalendarEvent event) {
+        return ledger.tryClaim(NotificationScheduler.notificationKey(event), event.getStart());
+    }
+
+    private void save(List<CalendarAccountConfig> accounts, LocalDateTime now) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(
+                    "MERGE INTO poll_checkpoints (account_id, last_synced) KEY (account_id) VALUES (?, ?)",
+                    accounts, accounts.size(), (ps, account) -> {
+                        ps.setString(1, account.getId());
+                        ps.setTimestamp(2, Timestamp.valueOf(now));
+                    });
+        } catch (Exception e) {
+            // В памяти отметка уже есть; после перезапуска окно пропуска окажется чуть шире
+            log.error("Ошибка записи времени опроса календарей: {}", e.getMessage());
+        }
+    }
+
+    private static void count(String outcome, int amount) {
+        if (amount > 0) {
+            Metrics.counter("notifications.replayed", "outcome", outcome).increment(amount);
+        }
+    }
+}
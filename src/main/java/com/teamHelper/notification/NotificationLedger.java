@@ -0,0 +1,175 @@
+package com.teamHelper.notification;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Журнал отправленных напоминаний, переживающий перезапуск.
+ * Проверки идут по горячей in-memory копии без блокировок, запись в БД - пакетами в фоне (write-behind).
+ * При старте горячая копия поднимается из таблицы notification_ledger.
+ * В кластере (cluster.enabled) таблица общая, и право отправить напоминание берётся сразу вставкой строки:
+ * первичный ключ гарантирует, что из нескольких узлов напоминание отправит только один.
+ */
+@Slf4j
+@Component
+public class NotificationLedger implements MeterBinder {
+
+    private static final int RETENTION_DAYS = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final boolean sharedClaims;
+    private final Map<String, LocalDateTime> sentEventTimestamps = new ConcurrentHashMap<>();
+    private final Queue<LedgerEntry> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    public NotificationLedger(JdbcTemplate jdbcTemplate, int batchSize) {
+        this(jdbcTemplate, batchSize, false);
+    }
+
+    @Autowired
+    public NotificationLedger(JdbcTemplate jdbcTemplate,
+                              @Value("${notification.ledger.batch-size:200}") int batchSize,
+                              @Value("${cluster.enabled:false}") boolean sharedClaims) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.sharedClaims = sharedClaims;
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS notification_ledger (
+                    event_key   VARCHAR(512) PRIMARY KEY,
+                    event_start TIMESTAMP    NOT NULL,
+                    sent_at     TIMESTAMP    NOT NULL
+                )""");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_notification_ledger_start ON notification_ledger (event_start)");
+
+        Timestamp threshold = Timestamp.valueOf(LocalDateTime.now().minusDays(RETENTION_DAYS));
+        jdbcTemplate.query("SELECT event_key, event_start FROM notification_ledger WHERE event_start >= ?",
+                rs -> {
+                    sentEventTimestamps.put(rs.getString(1), rs.getTimestamp(2).toLocalDateTime());
+                }, threshold);
+
+        log.info("Журнал напоминаний загружен: {} записей", sentEventTimestamps.size());
+    }
+
+    public boolean isSent(String eventKey) {
+        return sentEventTimestamps.containsKey(eventKey);
+    }
+
+    //Атомарно помечает напоминание отправленным; false - его уже кто-то отправил
+    public boolean tryClaim(String eventKey, LocalDateTime eventStart) {
+        if (sharedClaims) {
+            return claimShared(eventKey, eventStart);
+        }
+        return claimLocal(eventKey, eventStart);
+    }
+
+    private boolean claimLocal(String eventKey, LocalDateTime eventStart) {
+        if (sentEventTimestamps.putIfAbsent(eventKey, eventStart) != null) {
+            return false;
+        }
+        pendingWrites.add(new LedgerEntry(eventKey, eventStart, LocalDateTime.now()));
+        return true;
+    }
+
+    private boolean claimShared(String eventKey, LocalDateTime eventStart) {
+        if (sentEventTimestamps.containsKey(eventKey)) {
+            return false;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO notification_ledger (event_key, event_start, sent_at) VALUES (?, ?, ?)",
+                    eventKey, Timestamp.valueOf(eventStart), Timestamp.valueOf(LocalDateTime.now()));
+        } catch (DuplicateKeyException e) {
+            // Напоминание уже отправил другой узел
+            sentEventTimestamps.putIfAbsent(eventKey, eventStart);
+            return false;
+        } catch (DataAccessException e) {
+            // Лучше возможный дубль, чем потерянное напоминание; запись догонит write-behind
+            log.warn("Общий журнал недоступен, напоминание {} отмечено только локально: {}", eventKey, e.getMessage());
+            return claimLocal(eventKey, eventStart);
+        }
+        return sentEventTimestamps.putIfAbsent(eventKey, eventStart) == null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("notifications.dedup.size", this, NotificationLedger::size)
+                .description("Записи горячей копии журнала отправленных напоминаний")
+                .register(registry);
+        Gauge.builder("notifications.ledger.pending.writes", pendingWrites, Queue::size)
+                .register(registry);
+    }
+
+    public int size() {
+        return sentEventTimestamps.size();
+    }
+
+    @Scheduled(fixedDelayString = "${notification.ledger.flush-interval-ms:1000}")
+    public void flush() {
+        while (!pendingWrites.isEmpty()) {
+            List<LedgerEntry> batch = new ArrayList<>(batchSize);
+            LedgerEntry entry;
+            while (batch.size() < batchSize && (entry = pendingWrites.poll()) != null) {
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                jdbcTemplate.batchUpdate(
+                        "MERGE INTO notification_ledger (event_key, event_start, sent_at) KEY (event_key) VALUES (?, ?, ?)",
+                        batch, batch.size(), (ps, e) -> {
+                            ps.setString(1, e.eventKey());
+                            ps.setTimestamp(2, Timestamp.valueOf(e.eventStart()));
+                            ps.setTimestamp(3, Timestamp.valueOf(e.sentAt()));
+                        });
+            } catch (Exception e) {
+                // Вернём записи в очередь и попробуем на следующем сбросе
+                pendingWrites.addAll(batch);
+                log.error("Ошибка записи журнала напоминаний: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")  // Каждый день в полночь
+    public void purgeExpired() {
+        LocalDateTime threshold = LocalDateTime.now().minusDays(RETENTION_DAYS);
+        sentEventTimestamps.entrySet().removeIf(entry -> entry.getValue().isBefore(threshold));
+
+        int deleted = jdbcTemplate.update("DELETE FROM notification_ledger WHERE event_start < ?",
+                Timestamp.valueOf(threshold));
+        log.info("Очистка журнала напоминаний: удалено {} записей", deleted);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private record LedgerEntry(String eventKey, LocalDateTime eventStart, LocalDateTime sentAt) {
+    }
+}
@@ -0,0 +1,171 @@
+package com.teamHelper.notification;
+
+import com.teamHelper.bot.BotComponent;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.model.CalendarEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.teamHelper.calendar.CalendarConstants.NOTIFY_BEFORE_MINUTES;
+
+/**
+ * Планировщик напоминаний: каждое событие регистрируется как таймер на start - NOTIFY_BEFORE_MINUTES.
+ * Синхронизация календаря только переставляет или отменяет таймеры изменившихся событий,
+ * а само напоминание срабатывает точно в срок независимо от частоты опроса.
+ */
+@Slf4j
+@Component
+public class NotificationScheduler implements MeterBinder {
+
+    private final BotComponent bot;
+    private final NotificationLedger ledger;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public NotificationScheduler(BotComponent bot, NotificationLedger ledger) {
+        this.bot = bot;
+        this.ledger = ledger;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(2, r -> {
+            Thread thread = new Thread(r, "notification-timer-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    public static String notificationKey(CalendarEvent event) {
+        return event.getId() + "_" + event.getStart().truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    //Приводит таймеры аккаунта в соответствие со свежим списком его событий
+    public void reconcile(CalendarAccountConfig account, List<CalendarEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> liveTimerKeys = new HashSet<>();
+
+        for (CalendarEvent event : events) {
+            if (event.getStart() == null || !event.getStart().isAfter(now)) {
+                continue;
+            }
+
+            String eventKey = notificationKey(event);
+            if (ledger.isSent(eventKey)) {
+                continue;
+            }
+
+            String timerKey = account.getId() + "/" + eventKey;
+            liveTimerKeys.add(timerKey);
+            schedule(timerKey, eventKey, account, event, now);
+        }
+
+        // Событие удалено или перенесено - его старый таймер больше не нужен
+        timers.entrySet().removeIf(entry -> {
+            Timer timer = entry.getValue();
+            if (timer.account.getId().equals(account.getId()) && !liveTimerKeys.contains(entry.getKey())) {
+                timer.cancel();
+                log.debug("Отменено напоминание {}", entry.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("notifications.pending", this, NotificationScheduler::pendingCount)
+                .description("Запланированные, но ещё не сработавшие напоминания")
+                .register(registry);
+    }
+
+    public int pendingCount() {
+        return timers.size();
+    }
+
+    private void schedule(String timerKey, String eventKey, CalendarAccountConfig account,
+                          CalendarEvent event, LocalDateTime now) {
+        LocalDateTime fireAt = event.getStart().minusMinutes(NOTIFY_BEFORE_MINUTES);
+        Timer created = new Timer(fireAt, eventKey, account, event);
+
+        Timer current = timers.compute(timerKey, (key, existing) -> {
+            if (existing != null && existing.fireAt.equals(fireAt)) {
+                // Время не изменилось - достаточно обновить содержимое
+                existing.event = event;
+                existing.account = account;
+                return existing;
+            }
+            if (existing != null) {
+                existing.cancel();
+            }
+            return created;
+        });
+
+        // Планируем только после публикации таймера в map, иначе таймер с нулевой задержкой потеряется
+        if (current == created) {
+            long delayMs = Math.max(0, Duration.between(now, fireAt).toMillis());
+            created.future = executor.schedule(() -> fire(timerKey, created), delayMs, TimeUnit.MILLISECONDS);
+            log.debug("Напоминание {} запланировано на {}", timerKey, fireAt);
+        }
+    }
+
+    private void fire(String timerKey, Timer timer) {
+        if (!timers.remove(timerKey, timer)) {
+            return;
+        }
+
+        CalendarEvent event = timer.event;
+        if (!ledger.tryClaim(timer.eventKey, event.getStart())) {
+            return;
+        }
+
+        try {
+            bot.sendCalendarNotification(event, timer.account.getTelegramChatId(), timer.account.getMmChatId());
+        } catch (Exception e) {
+            log.error("Ошибка отправки напоминания {}: {}", timerKey, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Timer {
+        private final LocalDateTime fireAt;
+        private final String eventKey;
+        private volatile CalendarAccountConfig account;
+        private volatile CalendarEvent event;
+        private volatile ScheduledFuture<?> future;
+
+        private Timer(LocalDateTime fireAt, String eventKey, CalendarAccountConfig account, CalendarEvent event) {
+            this.fireAt = fireAt;
+            this.eventKey = eventKey;
+            this.account = account;
+            this.event = event;
+        }
+
+        private void cancel() {
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+}
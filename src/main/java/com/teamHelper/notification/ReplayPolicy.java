@@ -0,0 +1,38 @@
+package com.teamHelper.notification;
+
+import com.teamHelper.model.CalendarEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Что делать с напоминаниями, срок которых прошёл, пока бот не работал или календарь не отвечал.
+ * Встречи, начавшиеся раньше maxAge назад или уже закончившиеся, отбрасываются.
+ * Остальные досылаются по одной, а если их больше summarizeOver - одним сообщением-списком.
+ */
+record ReplayPolicy(Duration maxAge, int summarizeOver) {
+
+    Plan plan(List<CalendarEvent> missed, LocalDateTime now) {
+        LocalDateTime oldest = now.minus(maxAge);
+        List<CalendarEvent> relevant = new ArrayList<>();
+        List<CalendarEvent> dropped = new ArrayList<>();
+        for (CalendarEvent event : missed) {
+            boolean finished = event.getEnd() != null && !event.getEnd().isAfter(now);
+            if (finished || event.getStart().isBefore(oldest)) {
+                dropped.add(event);
+            } else {
+                relevant.add(event);
+            }
+        }
+
+        if (relevant.size() > summarizeOver) {
+            return new Plan(List.of(), relevant, dropped);
+        }
+        return new Plan(relevant, List.of(), dropped);
+    }
+
+    record Plan(List<CalendarEvent> late, List<CalendarEvent> summary, List<CalendarEvent> dropped) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.teamHelper.bot;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryPipelineTest {
+
+    private HttpServer server;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/ok", exchange -> reply(exchange, 200));
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reply(exchange, 200);
+        });
+        server.createContext("/fail", exchange -> reply(exchange, 500));
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldDeliverWithoutBlockingCaller() throws Exception {
+        DeliveryPipeline pipeline = new DeliveryPipeline(new OkHttpClient(), 10, null, 1, 10);
+        List<String> errors = new CopyOnWriteArrayList<>();
+
+        long started = System.nanoTime();
+        assertTrue(pipeline.submit(DeliveryChannel.TELEGRAM, "1", request("/slow"), errors::add));
+        assertTrue(pipeline.submit(DeliveryChannel.MATTERMOST, "mm", request("/ok"), errors::add));
+        assertTrue((System.nanoTime() - started) / 1_000_000 < 500);
+
+        assertEquals(1, pipeline.stats(DeliveryChannel.TELEGRAM).pending());
+        release.countDown();
+        pipeline.shutdown(5_000);
+
+        assertEquals(1, pipeline.stats(DeliveryChannel.TELEGRAM).delivered());
+        assertEquals(1, pipeline.stats(DeliveryChannel.MATTERMOST).delivered());
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    void shouldRejectWhenLaneIsFull() {
+        DeliveryPipeline pipeline = new DeliveryPipeline(new OkHttpClient(), 1, null, 1, 10);
+
+        assertTrue(pipeline.submit(DeliveryChannel.TELEGRAM, "1", request("/slow"), error -> { }));
+        assertFalse(pipeline.submit(DeliveryChannel.TELEGRAM, "2", request("/slow"), error -> { }));
+        // Переполнение одной полосы не мешает другой
+        assertTrue(pipeline.submit(DeliveryChannel.MATTERMOST, "mm", request("/ok"), error -> { }));
+
+        assertEquals(1, pipeline.stats(DeliveryChannel.TELEGRAM).rejected());
+    }
+
+    @Test
+    void shouldReportFailures() {
+        DeliveryPipeline pipeline = new DeliveryPipeline(new OkHttpClient(), 10, null, 1, 10);
+        List<String> errors = new CopyOnWriteArrayList<>();
+
+        pipeline.submit(DeliveryChannel.TELEGRAM, "1", request("/fail"), errors::add);
+        pipeline.shutdown(5_000);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("HTTP 500"));
+        assertEquals(1, pipeline.stats(DeliveryChannel.TELEGRAM).failed());
+    }
+
+    private Request request(String path) {
+        return new Request.Builder()
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + path)
+                .post(new FormBody.Builder().add("text", "hi").build())
+                .build();
+    }
+
+    private static void reply(HttpExchange exchange, int status) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] body = "{}".getBytes();
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.teamHelper.bot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MattermostTransportTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> posts = new CopyOnWriteArrayList<>();
+    private final List<String> authHeaders = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v4/posts", exchange -> {
+            posts.add(objectMapper.readTree(exchange.getRequestBody()));
+            authHeaders.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldCoalesceRemindersForSameChannelAndMinute() {
+        DeliveryPipeline pipeline = new DeliveryPipeline(new OkHttpClient(), 10, null, 1, 10);
+        MattermostTransport transport = new MattermostTransport(pipeline, url(), "secret", 200);
+        List<String> errors = new CopyOnWriteArrayList<>();
+
+        transport.post("town", "2025-05-01T10:00", "first", errors::add);
+        transport.post("town", "2025-05-01T10:00", "second", errors::add);
+        transport.post("town", "2025-05-01T11:00", "other minute", errors::add);
+
+        waitForPosts(2);
+        transport.shutdown();
+        pipeline.shutdown(5_000);
+
+        assertTrue(errors.isEmpty(), errors::toString);
+        assertEquals(2, posts.size());
+        assertTrue(posts.stream().anyMatch(post -> post.path("message").asText().equals("first\n\nsecond")));
+        assertTrue(posts.stream().allMatch(post -> post.path("channel_id").asText().equals("town")));
+        assertTrue(authHeaders.stream().allMatch("Bearer secret"::equals));
+    }
+
+    @Test
+    void shouldSendImmediatelyWithoutCoalesceKey() {
+        DeliveryPipeline pipeline = new DeliveryPipeline(new OkHttpClient(), 10, null, 1, 10);
+        MattermostTransport transport = new MattermostTransport(pipeline, url(), "secret", 60_000);
+
+        transport.post("errors", null, "сбой \"кавычки\"", error -> fail(error));
+        pipeline.shutdown(5_000);
+
+        assertEquals(1, posts.size());
+        assertEquals("сбой \"кавычки\"", posts.get(0).path("message").asText());
+    }
+
+    private void waitForPosts(int expected) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (posts.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v4/posts";
+    }
+}
@@ -0,0 +1,110 @@
+package com.teamHelper.bot;
+
+import com.teamHelper.model.CalendarEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static com.teamHelper.calendar.CalendarConstants.DATE_FORMAT;
+
+/**
+ * Рендер одного уведомления для обоих каналов.
+ * legacy - прежний путь: String.format + replaceAll на каждый канал и цепочка replace для Mattermost.
+ * Запуск: mvn -Pbenchmark verify -Dbenchmark.include=MessageBuilderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBuilderBenchmark {
+
+    @Param({"200", "4000"})
+    private int descriptionLength;
+
+    private CalendarEvent event;
+    private MessageBuilder messageBuilder;
+
+    @Setup
+    public void setup() {
+        StringBuilder description = new StringBuilder();
+        while (description.length() < descriptionLength) {
+            description.append("Обсуждаем релиз 2.4 (API v3) - см. https://wiki.example.com/release_2.4 и задачи *срочно*! ");
+        }
+
+        event = new CalendarEvent();
+        event.setId("benchmark-event");
+        event.setTitle("Планирование [спринт 42]");
+        event.setStart(LocalDateTime.of(2025, 6, 23, 10, 0));
+        event.setEnd(LocalDateTime.of(2025, 6, 23, 11, 0));
+        event.setDescription(description.substring(0, descriptionLength));
+
+        messageBuilder = new MessageBuilder();
+        messageBuilder.render(event, DeliveryChannel.TELEGRAM);
+        messageBuilder.render(event, DeliveryChannel.MATTERMOST);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        blackhole.consume(legacyBuild(event));
+        blackhole.consume(legacyUnescape(legacyBuild(event)));
+    }
+
+    @Benchmark
+    public void documentUncached(Blackhole blackhole) {
+        MessageDocument document = messageBuilder.buildDocument(event);
+        blackhole.consume(TelegramMarkdownEncoder.INSTANCE.encode(document));
+        blackhole.consume(MattermostMarkdownEncoder.INSTANCE.encode(document));
+    }
+
+    @Benchmark
+    public void documentCached(Blackhole blackhole) {
+        blackhole.consume(messageBuilder.render(event, DeliveryChannel.TELEGRAM));
+        blackhole.consume(messageBuilder.render(event, DeliveryChannel.MATTERMOST));
+    }
+
+    private static String legacyBuild(CalendarEvent event) {
+        return String.format(
+                "🔔  %s\n" +
+                        "⏰  `%s` \\- `%s`\n\n" +
+                        "%s" +
+                        "%s",
+                legacyEscape(event.getTitle()),
+                legacyEscape(event.getStart().format(DATE_FORMAT)),
+                legacyEscape(event.getEnd().format(DATE_FORMAT)),
+                event.getDescription() != null ? "" + legacyEscape(event.getDescription()) + "\n" : "",
+                event.getLocation() != null ? "*Место\\:* " + legacyEscape(event.getLocation().getTitle()) : ""
+        );
+    }
+
+    private static String legacyEscape(String text) {
+        if (text == null) return "";
+        return text.replaceAll("([_\\\\*\\[\\]()~`>#+\\-=|{}.!])", "\\\\$1");
+    }
+
+    private static String legacyUnescape(String text) {
+        return text
+                .replace("\\=", "=")
+                .replace("\\.", ".")
+                .replace("\\_", "_")
+                .replace("\\*", "*")
+                .replace("\\[", "[")
+                .replace("\\]", "]")
+                .replace("\\(", "(")
+                .replace("\\)", ")")
+                .replace("\\n", "\n  ");
+    }
+}
@@ -1,11 +1,16 @@
 package com.teamHelper.bot;
 
+import com.teamHelper.digest.DayTimeline;
 import com.teamHelper.model.CalendarEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
 
+import static com.teamHelper.calendar.CalendarConstants.DATE_FORMAT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -50,4 +55,115 @@ public class MessageBuilderTest {
         String escaped = messageBuilder.escapeMarkdownV2("Test *bold* _italic_");
         assertEquals("Test \\*bold\\* \\_italic\\_", escaped);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRenderLinksAndLocationPerChannel() {
+        CalendarEvent event = new CalendarEvent();
+        event.setId("uid-1");
+        event.setTitle("Ретро (спринт 5)");
+        event.setStart(LocalDateTime.of(2025, 6, 23, 10, 0));
+        event.setEnd(LocalDateTime.of(2025, 6, 23, 11, 0));
+        event.setDescription("Ссылка: https://meet.example.com/a_b.");
+        CalendarEvent.Location location = new CalendarEvent.Location();
+        location.setTitle("Переговорка *2*");
+        event.setLocation(location);
+
+        String telegram = messageBuilder.render(event, DeliveryChannel.TELEGRAM);
+        assertEquals("🔔  Ретро \\(спринт 5\\)\n"
+                + "⏰  `10:00` \\- `11:00`\n\n"
+                + "Ссылка: [https://meet\\.example\\.com/a\\_b](https://meet.example.com/a_b)\\.\n"
+                + "*Место:* Переговорка \\*2\\*", telegram);
+
+        String mattermost = messageBuilder.render(event, DeliveryChannel.MATTERMOST);
+        assertEquals("🔔  Ретро (спринт 5)\n"
+                + "⏰  `10:00` - `11:00`\n\n"
+                + "Ссылка: https://meet.example.com/a_b.\n"
+                + "**Место:** Переговорка \\*2\\*", mattermost);
+    }
+
+    @Test
+    public void testRenderCacheInvalidatedByEdit() {
+        CalendarEvent event = new CalendarEvent();
+        event.setId("uid-2");
+        event.setTitle("Старое название");
+        event.setStart(LocalDateTime.of(2025, 6, 23, 10, 0));
+        event.setEnd(LocalDateTime.of(2025, 6, 23, 11, 0));
+
+        String first = messageBuilder.render(event, DeliveryChannel.TELEGRAM);
+        assertTrue(first == messageBuilder.render(event, DeliveryChannel.TELEGRAM));
+
+        event.setTitle("Новое название");
+        assertTrue(messageBuilder.render(event, DeliveryChannel.TELEGRAM).contains("Новое название"));
+    }
+
+    @Test
+    public void testRenderDigestWithFreeSlots() {
+        LocalDate day = LocalDate.of(2025, 6, 23);
+        CalendarEvent standup = new CalendarEvent();
+        standup.setId("uid-1");
+        standup.setTitle("Стендап (daily)");
+        standup.setStart(day.atTime(10, 0));
+        standup.setEnd(day.atTime(10, 30));
+        DayTimeline timeline = DayTimeline.build(day, List.of(standup), LocalTime.of(9, 0), LocalTime.of(18, 0));
+
+        String telegram = messageBuilder.renderDigest(timeline, DeliveryChannel.TELEGRAM);
+        String mattermost = messageBuilder.renderDigest(timeline, DeliveryChannel.MATTERMOST);
+
+        assertTrue(telegram.contains("23 июня, понедельник"), telegram);
+        assertTrue(telegram.contains("Стендап \\(daily\\)"), telegram);
+        assertTrue(mattermost.contains("`09:00-10:00`, `10:30-18:00`"), mattermost);
+    }
+
+    @Test
+    public void testRenderMissedSummary() {
+        CalendarEvent review = new CalendarEvent();
+        review.setId("uid-2");
+        review.setTitle("Ревью");
+        review.setStart(LocalDateTime.of(2025, 6, 23, 11, 0));
+        review.setEnd(LocalDateTime.of(2025, 6, 23, 12, 0));
+
+        String mattermost = messageBuilder.renderMissedSummary(List.of(review), DeliveryChannel.MATTERMOST);
+
+        assertTrue(mattermost.contains("Пропущенные напоминания"), mattermost);
+        assertTrue(mattermost.contains("`11:00` - `12:00`  Ревью"), mattermost);
+    }
+
+    @Test
+    public void testTelegramOutputMatchesLegacyBuilder() {
+        CalendarEvent plain = new CalendarEvent();
+        plain.setTitle("Планирование [спринт 42] - v2.4!");
+        plain.setStart(LocalDateTime.of(2025, 6, 23, 10, 0));
+        plain.setEnd(LocalDateTime.of(2025, 6, 23, 11, 0));
+        plain.setDescription("Повестка: релиз 2.4 (API v3), задачи *срочно* #1 _не_ забыть | a=b {x} ~y~ >z");
+
+        // Без адресов текст совпадает с прежним побайтно
+        assertEquals(legacyTelegram(plain), messageBuilder.render(plain, DeliveryChannel.TELEGRAM));
+
+        CalendarEvent withUrl = new CalendarEvent();
+        withUrl.setTitle(plain.getTitle());
+        withUrl.setStart(plain.getStart());
+        withUrl.setEnd(plain.getEnd());
+        withUrl.setDescription("Созвон: https://telemost.yandex.ru/j/123_45, вики (https://wiki.example.com/a-b).");
+
+        // С адресами отличие только в разметке ссылок
+        String expected = legacyTelegram(withUrl)
+                .replace("https://telemost\\.yandex\\.ru/j/123\\_45",
+                        "[https://telemost\\.yandex\\.ru/j/123\\_45](https://telemost.yandex.ru/j/123_45)")
+                .replace("https://wiki\\.example\\.com/a\\-b",
+                        "[https://wiki\\.example\\.com/a\\-b](https://wiki.example.com/a-b)");
+        assertEquals(expected, messageBuilder.render(withUrl, DeliveryChannel.TELEGRAM));
+    }
+
+    // Прежний MessageBuilder.buildEventMessage до перехода на MessageDocument
+    private static String legacyTelegram(CalendarEvent event) {
+        return String.format("🔔  %s\n⏰  `%s` \\- `%s`\n\n%s",
+                legacyEscape(event.getTitle()),
+                legacyEscape(event.getStart().format(DATE_FORMAT)),
+                legacyEscape(event.getEnd().format(DATE_FORMAT)),
+                event.getDescription() != null ? legacyEscape(event.getDescription()) + "\n" : "");
+    }
+
+    private static String legacyEscape(String text) {
+        return text.replaceAll("([_\\\\*\\[\\]()~`>#+\\-=|{}.!])", "\\\\$1");
+    }
+}
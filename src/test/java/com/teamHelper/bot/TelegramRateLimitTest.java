@@ -0,0 +1,230 @@
+package com.teamHelper.bot;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Dispatcher;
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Заглушка Telegram Bot API, которая, как и настоящий сервер, отвечает 429 с retry_after
+ * при превышении 30 сообщений/с на бота или 1 сообщения/с на чат.
+ */
+class TelegramRateLimitTest {
+
+    // Окно чуть меньше секунды - допуск на сетевой jitter между отправкой и приёмом
+    private static final long CHAT_INTERVAL_NANOS = 900_000_000L;
+    private static final int GLOBAL_PER_SECOND = 30;
+
+    private HttpServer server;
+    private final Map<String, Long> lastByChat = new ConcurrentHashMap<>();
+    private final Deque<Long> globalWindow = new ArrayDeque<>();
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final AtomicInteger forcedThrottles = new AtomicInteger();
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldSaturateAllowedRateWithoutErrors() throws Exception {
+        OkHttpClient client = tunedClient();
+        // Прогрев: первый запрос JVM заметно медленнее и искажает интервалы чата
+        client.newCall(request("0")).execute().close();
+        accepted.set(0);
+
+        DeliveryPipeline pipeline = new DeliveryPipeline(client, 500,
+                new TelegramRateLimiter(GLOBAL_PER_SECOND, 1, 20), 5, 100);
+        List<String> errors = new CopyOnWriteArrayList<>();
+
+        int chats = 25;
+        int messagesPerChat = 3;
+        for (int round = 0; round < messagesPerChat; round++) {
+            for (int chat = 1; chat <= chats; chat++) {
+                assertTrue(pipeline.submit(DeliveryChannel.TELEGRAM, String.valueOf(chat),
+                        request(String.valueOf(chat)), errors::add));
+            }
+        }
+        pipeline.shutdown(20_000);
+
+        int total = chats * messagesPerChat;
+        assertTrue(errors.isEmpty(), errors::toString);
+        assertEquals(total, accepted.get());
+        // Точные интервалы проверяет shouldSpaceMessagesOnFakeClock; здесь на загруженной машине
+        // jitter может дать единичные 429, которые конвейер обязан пережить повтором
+        assertTrue(throttled.get() <= total / 10, "429: " + throttled.get());
+        assertTrue(pipeline.deadLetters().isEmpty());
+    }
+
+    @Test
+    void shouldSpaceMessagesOnFakeClock() {
+        AtomicLong clock = new AtomicLong();
+        TelegramRateLimiter limiter = new TelegramRateLimiter(GLOBAL_PER_SECOND, 1, 20, clock::get);
+        List<Long> sent = new ArrayList<>();
+        Map<String, Long> lastByChat = new HashMap<>();
+
+        // 25 чатов по 3 сообщения; часы двигаются только на время, которое просит лимитер
+        List<String> queue = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int chat = 1; chat <= 25; chat++) {
+                queue.add(String.valueOf(chat));
+            }
+        }
+        while (!queue.isEmpty()) {
+            long minWait = Long.MAX_VALUE;
+            boolean admitted = false;
+            for (int i = 0; i < queue.size() && !admitted; i++) {
+                long wait = limiter.reserve(queue.get(i));
+                if (wait == 0) {
+                    record(sent, lastByChat, queue.remove(i), clock.get());
+                    admitted = true;
+                } else {
+                    minWait = Math.min(minWait, wait);
+                }
+            }
+            if (!admitted) {
+                clock.addAndGet(minWait);
+            }
+        }
+
+        assertEquals(75, sent.size());
+        for (int i = GLOBAL_PER_SECOND; i < sent.size(); i++) {
+            assertTrue(sent.get(i) - sent.get(i - GLOBAL_PER_SECOND) >= 999_000_000L,
+                    "больше " + GLOBAL_PER_SECOND + " сообщений за секунду");
+        }
+    }
+
+    private static void record(List<Long> sent, Map<String, Long> lastByChat, String chat, long now) {
+        Long last = lastByChat.put(chat, now);
+        assertTrue(last == null || now - last >= 1_000_000_000L, "чат " + chat + " чаще раза в секунду");
+        sent.add(now);
+    }
+
+    @Test
+    void shouldRetryAfterServer429() {
+        forcedThrottles.set(1);
+        DeliveryPipeline pipeline = new DeliveryPipeline(new OkHttpClient(), 10,
+                new TelegramRateLimiter(GLOBAL_PER_SECOND, 1, 20), 5, 100);
+        List<String> errors = new CopyOnWriteArrayList<>();
+
+        pipeline.submit(DeliveryChannel.TELEGRAM, "42", request("42"), errors::add);
+        pipeline.shutdown(5_000);
+
+        assertTrue(errors.isEmpty(), errors::toString);
+        assertEquals(1, accepted.get());
+        assertEquals(1, throttled.get());
+        assertEquals(1, pipeline.stats(DeliveryChannel.TELEGRAM).retried());
+    }
+
+    @Test
+    void shouldDeadLetterAfterExhaustingAttempts() {
+        forcedThrottles.set(Integer.MAX_VALUE);
+        DeliveryPipeline pipeline = new DeliveryPipeline(new OkHttpClient(), 10,
+                new TelegramRateLimiter(GLOBAL_PER_SECOND, 1, 20), 2, 100);
+        List<String> errors = new CopyOnWriteArrayList<>();
+
+        pipeline.submit(DeliveryChannel.TELEGRAM, "7", request("7"), errors::add);
+        pipeline.shutdown(5_000);
+
+        assertEquals(1, errors.size());
+        assertEquals(1, pipeline.deadLetters().size());
+        assertEquals(2, pipeline.deadLetters().get(0).attempts());
+    }
+
+    // Как в BotComponent: лимит на хост не должен задерживать запросы, уже прошедшие rate limiter
+    private OkHttpClient tunedClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(GLOBAL_PER_SECOND);
+        return new OkHttpClient.Builder().dispatcher(dispatcher).build();
+    }
+
+    private Request request(String chatId) {
+        return new Request.Builder()
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + "/botTOKEN/sendMessage")
+                .post(new FormBody.Builder().add("chat_id", chatId).add("text", "hi").build())
+                .build();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String chatId = null;
+        for (String pair : body.split("&")) {
+            String[] kv = pair.split("=", 2);
+            if (kv[0].equals("chat_id")) {
+                chatId = URLDecoder.decode(kv[1], StandardCharsets.UTF_8);
+            }
+        }
+
+        if (forcedThrottles.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0 || !admit(chatId)) {
+            throttled.incrementAndGet();
+            reply(exchange, 429, "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after 1\","
+                    + "\"parameters\":{\"retry_after\":1}}");
+            return;
+        }
+
+        accepted.incrementAndGet();
+        reply(exchange, 200, "{\"ok\":true,\"result\":{}}");
+    }
+
+    private synchronized boolean admit(String chatId) {
+        long now = System.nanoTime();
+
+        while (!globalWindow.isEmpty() && now - globalWindow.peekFirst() > CHAT_INTERVAL_NANOS) {
+            globalWindow.pollFirst();
+        }
+        if (globalWindow.size() >= GLOBAL_PER_SECOND) {
+            return false;
+        }
+
+        Long last = lastByChat.get(chatId);
+        if (last != null && now - last < CHAT_INTERVAL_NANOS) {
+            return false;
+        }
+
+        globalWindow.addLast(now);
+        lastByChat.put(chatId, now);
+        return true;
+    }
+
+    private static void reply(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.cluster.ClusterMembership;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarAccountsChangedEvent;
+import com.teamHelper.config.CalendarAccountsProperties;
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AdaptivePollSchedulerTest {
+
+    private static final long MINUTE = 60_000;
+
+    private final CalendarAccountConfig quiet = new CalendarAccountConfig("quiet", "http://localhost/quiet", 1L, "mm-1");
+    private final CalendarAccountConfig broken = new CalendarAccountConfig("broken", "http://localhost/broken", 2L, "mm-2");
+
+    private CalendarAccountsProperties properties;
+    private YandexCalendarService calendarService;
+    private CalendarSource source;
+    private ClusterMembership cluster;
+    private AdaptivePollScheduler scheduler;
+
+    @BeforeEach
+    void setup() {
+        properties = mock(CalendarAccountsProperties.class);
+        when(properties.getAccounts()).thenReturn(List.of(quiet, broken));
+
+        calendarService = mock(YandexCalendarService.class);
+        when(calendarService.refresh(anyList())).thenReturn(new CalendarFetchEngine.FetchResult(
+                Map.of("quiet", List.of()), List.of(), List.of("broken")).withChanges(Map.of("quiet", 0)));
+
+        source = mock(CalendarSource.class);
+        CalendarSourceRegistry registry = mock(CalendarSourceRegistry.class);
+        when(registry.sourceFor(any())).thenReturn(source);
+
+        cluster = mock(ClusterMembership.class);
+        when(cluster.owns(anyString())).thenReturn(true);
+
+        scheduler = new AdaptivePollScheduler(properties, calendarService, registry, cluster, MINUTE, 16 * MINUTE, 8 * MINUTE);
+    }
+
+    @Test
+    void shouldBackOffQuietAndFailingCalendars() {
+        long now = System.currentTimeMillis();
+        scheduler.poll(now);
+        verify(calendarService).refresh(List.of(quiet, broken));
+
+        // До истечения интервала повторного опроса нет
+        scheduler.poll(now + 1_000);
+        verify(calendarService, times(1)).refresh(anyList());
+
+        scheduler.poll(now + 2 * MINUTE);
+        scheduler.poll(now + 5 * MINUTE);
+
+        Map<String, AdaptivePollScheduler.PollStatus> status = scheduler.status();
+        assertEquals(3, status.get("quiet").polls());
+        assertEquals(4 * MINUTE, status.get("quiet").intervalMs());
+        assertEquals(3, status.get("broken").consecutiveErrors());
+        assertEquals(4 * MINUTE, status.get("broken").intervalMs());
+    }
+
+    @Test
+    void shouldNotBackOffPastReminderLead() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 6; i++) {
+            scheduler.poll(now + i * 16 * MINUTE);
+        }
+
+        // max-interval 16 мин урезан до упреждения напоминаний
+        assertEquals(5 * MINUTE, scheduler.status().get("quiet").intervalMs());
+    }
+
+    @Test
+    void shouldKeepMinIntervalWhenSourceProbesChanges() {
+        when(source.probesChanges(quiet)).thenReturn(true);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            scheduler.poll(now + i * 16 * MINUTE);
+        }
+
+        // Неизменный календарь проверяется дёшево, поэтому не откладывается
+        assertEquals(MINUTE, scheduler.status().get("quiet").intervalMs());
+        assertEquals(1, scheduler.status().get("quiet").changes());
+    }
+
+    @Test
+    void shouldResetBackOffWhenStoreReportsChanges() {
+        long now = System.currentTimeMillis();
+        scheduler.poll(now);
+        scheduler.poll(now + 2 * MINUTE);
+        assertEquals(2 * MINUTE, scheduler.status().get("quiet").intervalMs());
+
+        when(calendarService.refresh(anyList())).thenReturn(new CalendarFetchEngine.FetchResult(
+                Map.of("quiet", List.of()), List.of(), List.of("broken")).withChanges(Map.of("quiet", 3)));
+        scheduler.poll(now + 5 * MINUTE);
+
+        assertEquals(MINUTE, scheduler.status().get("quiet").intervalMs());
+        assertEquals(2, scheduler.status().get("quiet").changes());
+    }
+
+    @Test
+    void shouldPickUpReloadedAccountsOnNextTick() {
+        long now = System.currentTimeMillis();
+        scheduler.poll(now);
+
+        CalendarAccountConfig moved = new CalendarAccountConfig("quiet", "http://localhost/quiet-v2", 1L, "mm-1");
+        CalendarAccountConfig fresh = new CalendarAccountConfig("fresh", "http://localhost/fresh", 3L, "mm-3");
+        when(properties.getAccounts()).thenReturn(List.of(moved, fresh));
+        scheduler.onAccountsChanged(new CalendarAccountsChangedEvent(List.of(fresh), List.of(broken), List.of(moved)));
+
+        // Новый и изменённый календари опрашиваются сразу, не дожидаясь старого интервала
+        scheduler.poll(now + 1_000);
+        verify(calendarService).refresh(List.of(moved, fresh));
+        assertFalse(scheduler.status().containsKey("broken"));
+        assertEquals(1, scheduler.status().get("quiet").polls());
+    }
+
+    @Test
+    void shouldReleaseAccountTakenByAnotherNode() {
+        long now = System.currentTimeMillis();
+        scheduler.poll(now);
+
+        when(cluster.owns("broken")).thenReturn(false);
+        scheduler.poll(now + 5 * MINUTE);
+
+        verify(calendarService).release(broken);
+        verify(calendarService).refresh(List.of(quiet));
+        assertFalse(scheduler.status().containsKey("broken"));
+    }
+
+    @Test
+    void shouldTightenIntervalBeforeReminder() {
+        PollPolicy policy = new PollPolicy(MINUTE, 16 * MINUTE, 8 * MINUTE);
+
+        assertEquals(16 * MINUTE, policy.afterSuccess(10, null));
+        assertEquals(5 * MINUTE, policy.afterSuccess(10, 10 * MINUTE));
+        assertEquals(MINUTE, policy.afterSuccess(10, 30_000L));
+        assertEquals(MINUTE, policy.afterSuccess(0, 60 * MINUTE));
+        assertEquals(8 * MINUTE, policy.afterFailure(30));
+    }
+
+    @Test
+    void shouldFindNearestUpcomingReminder() {
+        LocalDateTime now = LocalDateTime.of(2025, 6, 23, 10, 0);
+        CalendarEvent soon = new CalendarEvent();
+        soon.setStart(now.plusMinutes(3));
+        CalendarEvent later = new CalendarEvent();
+        later.setStart(now.plusMinutes(25));
+        CalendarEvent next = new CalendarEvent();
+        next.setStart(now.plusMinutes(15));
+
+        // У "soon" напоминание уже в прошлом, ближайшее - за 5 минут до "next"
+        assertEquals(10 * MINUTE, AdaptivePollScheduler.msUntilNextReminder(List.of(soon, later, next), now));
+        assertNull(AdaptivePollScheduler.msUntilNextReminder(List.of(soon), now));
+    }
+}
@@ -0,0 +1,85 @@
+package com.teamHelper.calendar;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Ответы calendar-query в формате Яндекса (multistatus, один VCALENDAR на ресурс),
+ * сгенерированные вокруг текущей даты, чтобы все события попадали в окно разворачивания.
+ * Каждое пятое событие - ежедневная серия с двумя перенесёнными экземплярами (RECURRENCE-ID),
+ * каждое десятое - серия по будням с BYDAY и EXDATE.
+ */
+final class CalDavFixtures {
+
+    private static final DateTimeFormatter UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private CalDavFixtures() {
+    }
+
+    static byte[] multistatus(int events) {
+        StringBuilder xml = new StringBuilder(events * 900);
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+                .append("<D:multistatus xmlns:D=\"DAV:\" xmlns:C=\"urn:ietf:params:xml:ns:caldav\">\n");
+        for (int i = 0; i < events; i++) {
+            xml.append("<D:response><D:href>/calendars/user/events-default/event-").append(i).append(".ics</D:href>")
+                    .append("<D:propstat><D:prop><D:getetag>\"etag-").append(i).append("\"</D:getetag>")
+                    .append("<C:calendar-data>")
+                    .append(escapeXml(calendarData(i)))
+                    .append("</C:calendar-data></D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>\n");
+        }
+        xml.append("</D:multistatus>\n");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String calendarData(int i) {
+        LocalDateTime today = LocalDate.now().atTime(9 + i % 9, (i * 5) % 60);
+        StringBuilder ics = new StringBuilder(800);
+        ics.append("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//Yandex LLC//Yandex Calendar//EN\r\n");
+
+        if (i % 10 == 0) {
+            LocalDateTime seriesStart = today.minusWeeks(8);
+            vevent(ics, i, seriesStart, null,
+                    "RRULE:FREQ=WEEKLY;BYDAY=MO,TU,WE,TH,FR\r\nEXDATE:" + utc(seriesStart.plusWeeks(1)) + "\r\n");
+        } else if (i % 5 == 0) {
+            LocalDateTime seriesStart = today.minusDays(60);
+            vevent(ics, i, seriesStart, null, "RRULE:FREQ=DAILY;COUNT=120\r\n");
+            vevent(ics, i, today.plusHours(1), today, "");
+            vevent(ics, i, today.plusDays(1).plusMinutes(30), today.plusDays(1), "");
+        } else {
+            vevent(ics, i, today, null, "");
+        }
+
+        ics.append("END:VCALENDAR\r\n");
+        return ics.toString();
+    }
+
+    private static void vevent(StringBuilder ics, int i, LocalDateTime start, LocalDateTime recurrenceId, String extra) {
+        ics.append("BEGIN:VEVENT\r\n")
+                .append("UID:fixture-").append(i).append("@yandex.ru\r\n")
+                .append("DTSTAMP:").append(utc(start)).append("\r\n")
+                .append("DTSTART:").append(utc(start)).append("\r\n")
+                .append("DTEND:").append(utc(start.plusMinutes(30))).append("\r\n");
+        if (recurrenceId != null) {
+            ics.append("RECURRENCE-ID:").append(utc(recurrenceId)).append("\r\n");
+        }
+        ics.append("SUMMARY:Встреча команды №").append(i).append("\r\n")
+                .append("DESCRIPTION:Повестка: релиз\\, ретро и планирование. Ссылка на звонок https://telemost.yandex.ru/j/")
+                .append(1_000_000 + i).append("\r\n ")
+                .append("и длинный перенесённый хвост описания для проверки склейки строк\r\n")
+                .append("LOCATION:Переговорка ").append(i % 12).append("\r\n")
+                .append("SEQUENCE:").append(recurrenceId != null ? 1 : 0).append("\r\n")
+                .append(extra)
+                .append("END:VEVENT\r\n");
+    }
+
+    private static String utc(LocalDateTime time) {
+        return time.atZone(java.time.ZoneId.of("Europe/Moscow")).withZoneSameInstant(ZoneOffset.UTC).format(UTC);
+    }
+
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
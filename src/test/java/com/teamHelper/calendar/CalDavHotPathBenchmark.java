@@ -0,0 +1,140 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.bot.MessageBuilder;
+import com.teamHelper.model.CalendarEvent;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.component.VEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячий путь опроса календаря на записанных ответах {@link CalDavFixtures} от 10 до 5000 событий:
+ * разбор multistatus + iCalendar, разворачивание RRULE/RECURRENCE-ID (с кэшем повторений и без),
+ * конвертация VEVENT и рендер уведомления.
+ * Запуск (работает офлайн, с профилировщиком gc):
+ * mvn -o -Pbenchmark verify -Dbenchmark.include=CalDavHotPathBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalDavHotPathBenchmark {
+
+    @Param({"10", "500", "5000"})
+    private int events;
+
+    private byte[] multistatus;
+    private List<Calendar> calendars;
+    private List<VEvent> vEvents;
+    private List<CalendarEvent> converted;
+    private EventExpander expander;
+    private MessageBuilder messageBuilder;
+    private LocalDateTime periodStart;
+    private LocalDateTime periodEnd;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        multistatus = CalDavFixtures.multistatus(events);
+        expander = new EventExpander();
+        messageBuilder = new MessageBuilder();
+        periodStart = LocalDate.now().minusDays(1).atStartOfDay();
+        periodEnd = LocalDate.now().plusDays(2).atStartOfDay();
+
+        calendars = parse();
+        vEvents = new ArrayList<>();
+        for (Calendar calendar : calendars) {
+            for (Object component : calendar.getComponents(Component.VEVENT)) {
+                vEvents.add((VEvent) component);
+            }
+        }
+        converted = expand(false);
+    }
+
+    @Benchmark
+    public List<Calendar> parseMultistatus() throws Exception {
+        return parse();
+    }
+
+    @Benchmark
+    public List<CalendarEvent> expandCold() {
+        return expand(false);
+    }
+
+    @Benchmark
+    public List<CalendarEvent> expandWithOccurrenceCache() {
+        return expand(true);
+    }
+
+    @Benchmark
+    public EventTable convertEvents() {
+        EventTable table = new EventTable(vEvents.size());
+        for (VEvent vEvent : vEvents) {
+            expander.appendEvent(table, vEvent);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public EventTable convertEventsWithCustomTime() {
+        EventTable table = new EventTable(vEvents.size());
+        long start = System.currentTimeMillis();
+        for (VEvent vEvent : vEvents) {
+            expander.appendOccurrence(table, vEvent, start, start + 1_800_000);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public void buildEventMessages(Blackhole blackhole) {
+        for (CalendarEvent event : converted) {
+            if (event.getStart() != null && event.getEnd() != null) {
+                blackhole.consume(messageBuilder.buildEventMessage(event));
+            }
+        }
+    }
+
+    private List<Calendar> parse() throws Exception {
+        List<Calendar> parsed = new ArrayList<>(events);
+        new MultiStatusReader().read(new ByteArrayInputStream(multistatus), resource -> {
+            try {
+                parsed.add(EventExpander.parseCalendarData(resource.calendarData()));
+            } catch (Exception e) {
+                throw new IllegalStateException(resource.href(), e);
+            }
+        });
+        return parsed;
+    }
+
+    // etag == null отключает кэш повторений
+    private List<CalendarEvent> expand(boolean cached) {
+        List<CalendarEvent> result = new ArrayList<>();
+        HashSet<String> liveUids = new HashSet<>();
+        for (int i = 0; i < calendars.size(); i++) {
+            result.addAll(expander.expandRecurringEvents("bench", cached ? "etag-" + i : null,
+                    calendars.get(i), periodStart, periodEnd, liveUids));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package com.teamHelper.calendar;
+
+import com.sun.net.httpserver.HttpServer;
+import com.teamHelper.config.CalendarAccountConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalDavTransportTest {
+
+    private HttpServer server;
+    private CalDavTransport transport;
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/cal/", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            authorizations.add(String.valueOf(authorization));
+            if (authorization == null) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"caldav\"");
+                exchange.sendResponseHeaders(401, -1);
+                exchange.close();
+                return;
+            }
+
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] body = "<multistatus/>".getBytes(StandardCharsets.UTF_8);
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(body);
+                }
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(207, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/slow/", exchange -> {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(207, -1);
+            exchange.close();
+        });
+        server.start();
+
+        transport = new CalDavTransport(CalDavTransport.Settings.defaults(), "user", "pass");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldNotSendCredentialsAcrossRedirectToAnotherHost() throws Exception {
+        List<String> foreignAuthorizations = new CopyOnWriteArrayList<>();
+        HttpServer foreign = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        foreign.createContext("/feed.ics", exchange -> {
+            foreignAuthorizations.add(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        foreign.start();
+        server.createContext("/moved.ics", exchange -> {
+            authorizations.add(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+            // localhost вместо 127.0.0.1 - другой хост с точки зрения клиента
+            exchange.getResponseHeaders().set("Location",
+                    "http://localhost:" + foreign.getAddress().getPort() + "/feed.ics");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+
+        try (CloseableHttpResponse response = transport.execute(
+                new HttpGet("http://127.0.0.1:" + server.getAddress().getPort() + "/moved.ics"), null)) {
+            assertEquals(200, response.getStatusLine().getStatusCode());
+        } finally {
+            foreign.stop(0);
+        }
+
+        assertTrue(authorizations.get(0).startsWith("Basic "));
+        assertEquals(List.of("null"), foreignAuthorizations);
+    }
+
+    @Test
+    void shouldSendBasicAuthPreemptivelyAndDecompressGzip() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            try (CloseableHttpResponse response = transport.execute(new HttpGet(url("/cal/")), null)) {
+                assertEquals(207, response.getStatusLine().getStatusCode());
+                assertEquals("<multistatus/>", EntityUtils.toString(response.getEntity()));
+            }
+        }
+
+        // Ни одного круга 401 → повтор
+        assertEquals(3, authorizations.size());
+        assertTrue(authorizations.stream().allMatch("Basic dXNlcjpwYXNz"::equals));
+        // Соединение переиспользуется: в пуле одно свободное
+        assertEquals(1, transport.poolStats().getAvailable());
+    }
+
+    @Test
+    void shouldApplyPerAccountReadTimeout() {
+        CalendarAccountConfig account = new CalendarAccountConfig("slow", url("/slow/"), 1L, "mm");
+        account.setReadTimeoutMs(200);
+
+        assertThrows(SocketTimeoutException.class, () -> transport.execute(new HttpGet(account.getUrl()), account));
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
@@ -0,0 +1,194 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarAccountsChangedEvent;
+import com.teamHelper.model.CalendarEvent;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CalendarFetchEngineTest {
+
+    private final CalendarAccountConfig fast = new CalendarAccountConfig("fast", "http://localhost/fast", 1L, "mm-1");
+    private final CalendarAccountConfig slow = new CalendarAccountConfig("slow", "http://localhost/slow", 2L, "mm-2");
+    private final CalendarAccountConfig broken = new CalendarAccountConfig("broken", "http://localhost/broken", 3L, "mm-3");
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    private CalendarSource calDavService;
+    private CalendarFetchEngine engine;
+
+    @BeforeEach
+    void setup() throws Exception {
+        Metrics.addRegistry(meters);
+        calDavService = mock(CalendarSource.class);
+        when(calDavService.provider()).thenReturn("yandex");
+        engine = new CalendarFetchEngine(new CalendarSourceRegistry(List.of(calDavService)), 4, 300);
+
+        CalendarEvent event = new CalendarEvent();
+        event.setId("evt-1");
+
+        when(calDavService.getUpcomingEvents(any())).thenAnswer(invocation -> {
+            CalendarAccountConfig account = invocation.getArgument(0);
+            switch (account.getId()) {
+                case "slow" -> Thread.sleep(5_000);
+                case "broken" -> throw new RuntimeException("boom");
+                default -> { }
+            }
+            return List.of(event);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+        Metrics.removeRegistry(meters);
+    }
+
+    @Test
+    void shouldSplitAccountsByOutcome() {
+        CalendarFetchEngine.FetchResult result = engine.fetchAll(List.of(fast, slow, broken));
+
+        assertEquals(1, result.eventsByAccount().get("fast").size());
+        assertFalse(result.eventsByAccount().containsKey("slow"));
+        assertEquals(List.of("slow"), result.timedOut());
+        assertEquals(List.of("broken"), result.failed());
+        assertEquals(1, result.allEvents().size());
+    }
+
+    @Test
+    void shouldFinishWithinTickDeadline() {
+        long started = System.nanoTime();
+        engine.fetchAll(List.of(slow, fast, slow));
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(elapsedMs < 2_000, "Такт занял " + elapsedMs + " мс");
+    }
+
+    @Test
+    void shouldCountOverrunsAndFailuresPerAccount() {
+        engine.fetchAll(List.of(fast, slow, broken));
+
+        assertEquals(1, meters.get("calendar.fetch.overruns").tag("account", "slow").counter().count());
+        assertEquals(1, meters.get("calendar.fetch.failures").tag("account", "broken").counter().count());
+        assertEquals(1, meters.get("calendar.fetch.tick").timer().count());
+    }
+
+    @Test
+    void shouldServeLastGoodSnapshotWhileBreakerIsOpen() throws Exception {
+        CalendarFetchEngine guarded = new CalendarFetchEngine(
+                new CalendarSourceRegistry(List.of(calDavService)), 4, 300, 4, 1, 60_000, 60_000);
+        CalendarAccountConfig flaky = new CalendarAccountConfig("flaky", "http://localhost/flaky", 4L, "mm-4");
+        CalendarEvent event = new CalendarEvent();
+        event.setId("evt-2");
+        when(calDavService.getUpcomingEvents(flaky))
+                .thenReturn(List.of(event))
+                .thenThrow(new RuntimeException("down"));
+
+        try {
+            guarded.fetchAll(List.of(flaky));
+            CalendarFetchEngine.FetchResult failed = guarded.fetchAll(List.of(flaky));
+            CalendarFetchEngine.FetchResult skipped = guarded.fetchAll(List.of(flaky));
+
+            assertEquals(List.of("flaky"), failed.failed());
+            assertEquals(List.of(event), failed.eventsByAccount().get("flaky"));
+            // Предохранитель открыт: календарь не опрашивается, отдаётся снимок
+            assertTrue(skipped.failed().isEmpty());
+            assertEquals(List.of("flaky"), skipped.stale());
+            assertEquals(List.of(event), skipped.eventsByAccount().get("flaky"));
+            verify(calDavService, times(2)).getUpcomingEvents(flaky);
+            assertEquals(CircuitBreaker.State.OPEN, guarded.breakerStatus().get("flaky").state());
+        } finally {
+            guarded.shutdown();
+        }
+    }
+
+    @Test
+    void shouldForgetRemovedAccount() {
+        CalendarFetchEngine guarded = new CalendarFetchEngine(
+                new CalendarSourceRegistry(List.of(calDavService)), 4, 300, 4, 1, 60_000, 60_000);
+
+        try {
+            guarded.fetchAll(List.of(fast, broken));
+            assertEquals(CircuitBreaker.State.OPEN, guarded.breakerStatus().get("broken").state());
+
+            guarded.onAccountsChanged(new CalendarAccountsChangedEvent(List.of(), List.of(broken), List.of()));
+
+            assertEquals(List.of("fast"), List.copyOf(guarded.breakerStatus().keySet()));
+            assertNull(meters.find("calendar.breaker.state").tag("account", "broken").gauge());
+            verify(calDavService).forget("broken");
+        } finally {
+            guarded.shutdown();
+        }
+    }
+
+    @Test
+    void shouldCapConcurrentRequestsPerHost() throws Exception {
+        CalendarSource source = mock(CalendarSource.class);
+        when(source.provider()).thenReturn("yandex");
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(source.getUpcomingEvents(any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            return List.of();
+        });
+        CalendarFetchEngine guarded = new CalendarFetchEngine(
+                new CalendarSourceRegistry(List.of(source)), 8, 5_000, 2, 3, 60_000, 60_000);
+        List<CalendarAccountConfig> accounts = IntStream.range(0, 8)
+                .mapToObj(i -> new CalendarAccountConfig("cal-" + i, "http://localhost/cal-" + i, (long) i, "mm-" + i))
+                .toList();
+
+        try {
+            CalendarFetchEngine.FetchResult result = guarded.fetchAll(accounts);
+
+            // На localhost не больше двух запросов разом, но в такт опрошены все календари
+            assertTrue(maxInFlight.get() <= 2, "в полёте: " + maxInFlight.get());
+            assertEquals(8, result.eventsByAccount().size());
+            assertTrue(result.stale().isEmpty());
+            assertTrue(result.timedOut().isEmpty());
+        } finally {
+            guarded.shutdown();
+        }
+    }
+
+    @Test
+    void shouldServeSnapshotWhenHostStaysBusyUntilDeadline() throws Exception {
+        CalendarFetchEngine guarded = new CalendarFetchEngine(
+                new CalendarSourceRegistry(List.of(calDavService)), 4, 300, 1, 3, 60_000, 60_000);
+        CalendarAccountConfig sameHost = new CalendarAccountConfig("slow-2", "http://localhost/slow-2", 5L, "mm-5");
+        // Оба медленные: какой бы из них ни занял единственное место, второй его не дождётся
+        doAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return List.of();
+        }).when(calDavService).getUpcomingEvents(any());
+
+        try {
+            CalendarFetchEngine.FetchResult result = guarded.fetchAll(List.of(slow, sameHost));
+
+            // Первый держал место до дедлайна: второй не ошибся, а просто не дождался
+            assertEquals(1, result.timedOut().size());
+            String waiting = result.timedOut().contains("slow") ? "slow-2" : "slow";
+            assertFalse(result.eventsByAccount().containsKey(waiting));
+            assertTrue(result.failed().isEmpty());
+            assertEquals(CircuitBreaker.State.CLOSED, guarded.breakerStatus().get(waiting).state());
+        } finally {
+            guarded.shutdown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.teamHelper.calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 60_000, 200_000, clock::get);
+
+    @Test
+    void shouldOpenAfterConsecutiveFailures() {
+        assertFalse(breaker.onFailure());
+        assertFalse(breaker.onFailure());
+        assertTrue(breaker.onFailure());
+
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.status().state());
+        assertEquals(clock.get() + 60_000, breaker.status().openUntilMillis());
+    }
+
+    @Test
+    void shouldAllowSingleTrialWhenHalfOpen() {
+        openBreaker();
+        clock.addAndGet(60_000);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.status().state());
+        assertTrue(breaker.tryAcquire());
+        // Пока пробная попытка не завершилась, остальные ждут
+        assertFalse(breaker.tryAcquire());
+
+        assertTrue(breaker.onSuccess());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.status().state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldDoublePauseWhenTrialFails() {
+        openBreaker();
+        clock.addAndGet(60_000);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.onFailure());
+        assertEquals(clock.get() + 120_000, breaker.status().openUntilMillis());
+
+        clock.addAndGet(120_000);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        // Пауза ограничена maxOpenMs
+        assertEquals(clock.get() + 200_000, breaker.status().openUntilMillis());
+    }
+
+    @Test
+    void shouldReleaseTrialWhenSkipped() {
+        openBreaker();
+        clock.addAndGet(60_000);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onSkipped();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+    }
+}
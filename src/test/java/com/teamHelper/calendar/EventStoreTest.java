@@ -0,0 +1,58 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.teamHelper.calendar.TestEvents.event;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventStoreTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 3, 3, 0, 0);
+
+    private final EventStore store = new EventStore();
+
+    @Test
+    void shouldReturnRangeOrderedByStart() {
+        store.replace("team", List.of(
+                event("c", MONDAY.plusDays(2).withHour(10)),
+                event("a", MONDAY.withHour(15)),
+                event("b", MONDAY.withHour(9))));
+
+        List<CalendarEvent> monday = store.between("team", MONDAY, MONDAY.plusDays(1));
+
+        assertEquals(List.of("b", "a"), monday.stream().map(CalendarEvent::getId).toList());
+        assertEquals("c", store.next("team", MONDAY.plusDays(1)).getId());
+        assertNull(store.next("team", MONDAY.plusDays(3)));
+        assertTrue(store.between("other", MONDAY, MONDAY.plusDays(7)).isEmpty());
+    }
+
+    @Test
+    void shouldApplySnapshotAsDiff() {
+        CalendarEvent standup = event("standup", MONDAY.withHour(10));
+        store.replace("team", List.of(standup, event("review", MONDAY.withHour(15))));
+
+        CalendarEvent moved = event("review", MONDAY.withHour(16));
+        // Стендап не изменился, ревью переехало: старый слот удалён, новый добавлен
+        assertEquals(2, store.replace("team", List.of(event("standup", MONDAY.withHour(10)), moved)));
+        assertEquals(List.of(standup, moved), store.between("team", MONDAY, MONDAY.plusDays(1)));
+        assertEquals(0, store.replace("team", List.of(standup, moved)));
+    }
+
+    @Test
+    void shouldMergeAccountsAndEvictPastDays() {
+        store.replace("team", List.of(event("old", MONDAY.minusDays(2).withHour(10)), event("t", MONDAY.withHour(12))));
+        store.replace("ops", List.of(event("o", MONDAY.withHour(11))));
+
+        assertEquals(List.of("o", "t"),
+                store.between(MONDAY, MONDAY.plusDays(1)).stream().map(CalendarEvent::getId).toList());
+
+        store.evictBefore(MONDAY.minusDays(1));
+
+        assertEquals(2, store.size());
+        assertTrue(store.between("team", MONDAY.minusDays(7), MONDAY).isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Развёрнутые повторения как бины {@link CalendarEvent} (как было до EventTable) и как строки {@link EventTable}.
+ * Все созданные объекты удерживаются результатом, поэтому gc.alloc.rate.norm из -prof gc
+ * одновременно показывает мусор за опрос и память на одно повторение.
+ * Запуск: mvn -o -Pbenchmark verify -Dbenchmark.include=EventTableBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventTableBenchmark {
+
+    private static final int SERIES = 100;
+
+    @Param({"1000", "20000"})
+    private int occurrences;
+
+    // Строки серий уже лежат в разобранных VEVENT, поэтому в обоих вариантах не копируются
+    private String[] uids;
+    private String[] titles;
+    private String[] locations;
+    private long[] startMillis;
+
+    private EventTable table;
+    private List<CalendarEvent> beans;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        uids = new String[SERIES];
+        titles = new String[SERIES];
+        locations = new String[SERIES];
+        for (int i = 0; i < SERIES; i++) {
+            uids[i] = "series-" + i + "@yandex.ru";
+            titles[i] = "Встреча команды " + i;
+            locations[i] = "https://telemost.yandex.ru/j/" + (1000 + i);
+        }
+
+        long base = LocalDate.now().atStartOfDay(ParserContext.ZONE).toInstant().toEpochMilli();
+        startMillis = new long[occurrences];
+        for (int i = 0; i < occurrences; i++) {
+            startMillis[i] = base + (long) (i / SERIES) * 900_000;
+        }
+
+        table = buildTable();
+        beans = buildBeans();
+    }
+
+    @Benchmark
+    public List<CalendarEvent> buildBeans() {
+        List<CalendarEvent> result = new ArrayList<>(occurrences);
+        for (int i = 0; i < occurrences; i++) {
+            int series = i % SERIES;
+            CalendarEvent event = new CalendarEvent();
+            event.setId(uids[series] + "_" + startMillis[i]);
+            event.setTitle(titles[series]);
+            event.setStart(Instant.ofEpochMilli(startMillis[i]).atZone(ParserContext.ZONE).toLocalDateTime());
+            event.setEnd(Instant.ofEpochMilli(startMillis[i] + 1_800_000).atZone(ParserContext.ZONE).toLocalDateTime());
+            CalendarEvent.Location location = new CalendarEvent.Location();
+            location.setTitle(locations[series]);
+            event.setLocation(location);
+            result.add(event);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public EventTable buildTable() {
+        EventTable result = new EventTable(occurrences);
+        for (int i = 0; i < occurrences; i++) {
+            int series = i % SERIES;
+            result.addOccurrence(uids[series], startMillis[i], startMillis[i] + 1_800_000,
+                    titles[series], null, null, locations[series]);
+        }
+        return result;
+    }
+
+    // Так данные читают планировщик напоминаний и EventStore
+    @Benchmark
+    public void scanBeans(Blackhole blackhole) {
+        for (CalendarEvent event : beans) {
+            blackhole.consume(event.getStart());
+            blackhole.consume(event.getTitle());
+        }
+    }
+
+    @Benchmark
+    public void scanTable(Blackhole blackhole) {
+        for (CalendarEvent event : table.asList()) {
+            blackhole.consume(event.getStart());
+            blackhole.consume(event.getTitle());
+        }
+    }
+}
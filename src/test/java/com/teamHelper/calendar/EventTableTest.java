@@ -0,0 +1,108 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventTableTest {
+
+    private static final LocalDateTime TEN = LocalDateTime.of(2025, 3, 3, 10, 0);
+
+    @Test
+    void shouldExposeRowsAsEqualBeans() {
+        EventTable table = new EventTable(1);
+        long start = millis(TEN);
+        table.addOccurrence("daily", start, start + 900_000, "Standup", "Повестка", null, "Telemost");
+        table.addEvent("once", null, null, "Без времени", null, "https://example.com", null);
+
+        CalendarEvent expected = new CalendarEvent();
+        expected.setId("daily_" + start);
+        expected.setTitle("Standup");
+        expected.setDescription("Повестка");
+        expected.setStart(TEN);
+        expected.setEnd(TEN.plusMinutes(15));
+        CalendarEvent.Location location = new CalendarEvent.Location();
+        location.setTitle("Telemost");
+        expected.setLocation(location);
+
+        List<CalendarEvent> rows = table.asList();
+        assertEquals(2, rows.size());
+        assertEquals(expected, rows.get(0));
+        assertEquals(expected.hashCode(), rows.get(0).hashCode());
+        assertEquals("once", rows.get(1).getId());
+        assertNull(rows.get(1).getStart());
+        assertNull(rows.get(1).getLocation());
+    }
+
+    @Test
+    void shouldShareStringsBetweenOccurrences() {
+        EventTable table = new EventTable();
+        for (int day = 0; day < 7; day++) {
+            long start = millis(TEN.plusDays(day));
+            table.addOccurrence("daily", start, start + 900_000, "Standup", null, null, "Telemost");
+        }
+
+        assertEquals(7, table.size());
+        // UID, название и место на всю серию
+        assertEquals(3, table.dictionarySize());
+        assertEquals(TEN.plusDays(6), table.asList().get(6).getStart());
+    }
+
+    @Test
+    void shouldBeReadOnly() {
+        EventTable table = new EventTable();
+        table.addEvent("once", null, null, "Title", null, null, null);
+
+        CalendarEvent row = table.asList().get(0);
+        assertThrows(UnsupportedOperationException.class, () -> row.setId("other"));
+        assertThrows(UnsupportedOperationException.class, () -> row.setTitle("Other"));
+        assertThrows(UnsupportedOperationException.class, () -> row.setDescription("Other"));
+        assertThrows(UnsupportedOperationException.class, () -> row.setUrl("https://example.com"));
+        assertThrows(UnsupportedOperationException.class, () -> row.setStart(TEN));
+        assertThrows(UnsupportedOperationException.class, () -> row.setEnd(TEN));
+        assertThrows(UnsupportedOperationException.class, () -> row.setLocation(new CalendarEvent.Location()));
+        assertThrows(UnsupportedOperationException.class, () -> row.setAttendees(List.of()));
+        assertThrows(UnsupportedOperationException.class, () -> table.asList().add(row));
+        assertEquals("Title", row.getTitle());
+    }
+
+    @Test
+    void shouldReuseRowsAndDecodedDates() {
+        EventTable table = new EventTable();
+        long start = millis(TEN);
+        table.addOccurrence("daily", start, start + 900_000, "Standup", null, null, "Telemost");
+
+        CalendarEvent first = table.asList().get(0);
+        assertSame(first, table.asList().get(0));
+        assertSame(first.getStart(), first.getStart());
+        assertSame(first.getEnd(), table.asList().get(0).getEnd());
+        assertEquals("Telemost", first.getLocationTitle());
+
+        // Location изменяемый, поэтому общий экземпляр не отдаётся
+        first.getLocation().setTitle("Другое место");
+        assertEquals("Telemost", first.getLocation().getTitle());
+    }
+
+    @Test
+    void shouldCompareRowsOfDifferentTablesByValue() {
+        long start = millis(TEN);
+        EventTable previous = new EventTable();
+        previous.addOccurrence("daily", start, start + 900_000, "Standup", null, null, "Telemost");
+        EventTable next = new EventTable();
+        next.addEvent("other", null, null, "Сдвигает номера строк", null, null, null);
+        next.addOccurrence("daily", start, start + 900_000, "Standup", null, null, "Telemost");
+        next.addOccurrence("daily", start, start + 900_000, "Standup", null, null, "Переговорная");
+
+        assertEquals(previous.asList().get(0), next.asList().get(1));
+        assertNotEquals(previous.asList().get(0), next.asList().get(2));
+        assertNotEquals(previous.asList().get(0), next.asList().get(0));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ParserContext.ZONE).toInstant().toEpochMilli();
+    }
+}
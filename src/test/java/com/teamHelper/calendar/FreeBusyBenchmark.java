@@ -0,0 +1,89 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы {@link FreeBusyIndex} по всем календарям команды: общие свободные окна дня, пересечения встреч
+ * и пересборка одного календаря после синхронизации. По 8 встреч в день на неделю вперёд.
+ * Запуск: mvn -o -Pbenchmark verify -Dbenchmark.include=FreeBusyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FreeBusyBenchmark {
+
+    private static final int MEETINGS_PER_DAY = 8;
+
+    @Param({"16", "128"})
+    private int calendars;
+
+    private final LocalDate today = LocalDate.now();
+    private FreeBusyIndex index;
+    private List<String> accountIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        EventStore store = new EventStore();
+        index = new FreeBusyIndex(store);
+        accountIds = new ArrayList<>();
+        Random random = new Random(42);
+        for (int c = 0; c < calendars; c++) {
+            String accountId = "calendar-" + c;
+            List<CalendarEvent> events = new ArrayList<>();
+            for (int day = 0; day < 7; day++) {
+                for (int m = 0; m < MEETINGS_PER_DAY; m++) {
+                    LocalDateTime start = today.plusDays(day).atTime(9, 0).plusMinutes(15L * random.nextInt(36));
+                    CalendarEvent event = new CalendarEvent();
+                    event.setId(accountId + "-" + day + "-" + m);
+                    event.setTitle("Встреча " + m);
+                    event.setStart(start);
+                    event.setEnd(start.plusMinutes(15L * (1 + random.nextInt(4))));
+                    events.add(event);
+                }
+            }
+            store.replace(accountId, events);
+            index.rebuild(accountId);
+            accountIds.add(accountId);
+        }
+    }
+
+    @Benchmark
+    public List<FreeBusyIndex.Slot> commonFree() {
+        return index.commonFree(accountIds, today, LocalTime.of(9, 0), LocalTime.of(18, 0), Duration.ofMinutes(30))
+                .orElseThrow();
+    }
+
+    @Benchmark
+    public List<FreeBusyIndex.Conflict> conflicts() {
+        return index.conflicts(accountIds, today);
+    }
+
+    @Benchmark
+    public void rebuildOneCalendar() {
+        index.rebuild(accountIds.get(0));
+    }
+}
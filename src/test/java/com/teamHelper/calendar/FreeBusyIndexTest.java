@@ -0,0 +1,96 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FreeBusyIndexTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+    private static final LocalTime NINE = LocalTime.of(9, 0);
+    private static final LocalTime SIX = LocalTime.of(18, 0);
+
+    private final EventStore store = new EventStore();
+    private final FreeBusyIndex index = new FreeBusyIndex(store);
+
+    @Test
+    void shouldFindWhenEveryoneIsFree() {
+        update("anna", event("a1", 9, 0, 10, 0), event("a2", 14, 0, 15, 30));
+        update("boris", event("b1", 9, 30, 11, 0));
+        update("vera", event("v1", 12, 0, 12, 10), event("v2", 17, 0, 18, 30));
+
+        List<FreeBusyIndex.Slot> free = index.commonFree(List.of("anna", "boris", "vera"), MONDAY, NINE, SIX,
+                Duration.ofMinutes(30)).orElseThrow();
+
+        assertEquals(List.of(slot(11, 0, 12, 0), slot(12, 10, 14, 0), slot(15, 30, 17, 0)), free);
+        assertEquals(List.of(slot(11, 0, 18, 0)),
+                index.commonFree(List.of("boris"), MONDAY, NINE, SIX, Duration.ofHours(4)).orElseThrow());
+        // Календаря нет в индексе (например, его ведёт другой узел) - свободное время неизвестно
+        assertTrue(index.commonFree(List.of("boris", "unknown"), MONDAY, NINE, SIX, Duration.ofHours(4)).isEmpty());
+        assertTrue(index.commonBusy(List.of("unknown"), MONDAY).isEmpty());
+    }
+
+    @Test
+    void shouldReportOverlapsAcrossCalendars() {
+        update("anna", event("planning", 10, 0, 11, 0), event("lunch", 13, 0, 14, 0));
+        update("boris", event("planning", 10, 0, 11, 0), event("interview", 10, 30, 11, 30));
+        update("vera", event("demo", 13, 30, 14, 0));
+
+        List<FreeBusyIndex.Conflict> conflicts = index.conflicts(List.of("anna", "boris", "vera"), MONDAY);
+
+        // Общая встреча planning в двух календарях - не конфликт, а вот interview пересекается с ней у обоих
+        assertEquals(List.of("planning/interview", "planning/interview", "lunch/demo"),
+                conflicts.stream().map(c -> c.first().getId() + "/" + c.second().getId()).toList());
+        assertEquals("vera", conflicts.get(2).secondAccountId());
+    }
+
+    @Test
+    void shouldSplitMeetingAcrossMidnightAndFollowUpdates() {
+        CalendarEvent release = new CalendarEvent();
+        release.setId("release");
+        release.setStart(MONDAY.atTime(23, 0));
+        release.setEnd(MONDAY.plusDays(1).atTime(1, 0));
+        update("ops", release);
+
+        assertEquals(List.of(slotOn(MONDAY.plusDays(1), 1, 0, 9, 0)),
+                index.commonFree(List.of("ops"), MONDAY.plusDays(1), LocalTime.MIDNIGHT, NINE, Duration.ZERO).orElseThrow());
+        assertTrue(index.commonFree(List.of("ops"), MONDAY, LocalTime.of(23, 0), LocalTime.MAX, Duration.ZERO)
+                .orElseThrow().isEmpty());
+        // Те же правила для событий не из индекса
+        assertEquals(index.commonBusy(List.of("ops"), MONDAY.plusDays(1)).orElseThrow(),
+                FreeBusyIndex.busyMinutes(List.of(release), MONDAY.plusDays(1)));
+
+        update("ops");
+        assertEquals(1, index.commonFree(List.of("ops"), MONDAY, LocalTime.of(23, 0), LocalTime.MAX, Duration.ZERO)
+                .orElseThrow().size());
+
+        store.removeAccount("ops");
+        index.onEventsChanged(new CalendarEventsChangedEvent("ops"));
+        assertTrue(index.conflicts(List.of("ops"), MONDAY).isEmpty());
+    }
+
+    private void update(String accountId, CalendarEvent... events) {
+        store.replace(accountId, List.of(events));
+        index.onEventsChanged(new CalendarEventsChangedEvent(accountId));
+    }
+
+    private static CalendarEvent event(String id, int startHour, int startMinute, int endHour, int endMinute) {
+        return TestEvents.event(id, MONDAY.atTime(startHour, startMinute), MONDAY.atTime(endHour, endMinute));
+    }
+
+    private static FreeBusyIndex.Slot slot(int startHour, int startMinute, int endHour, int endMinute) {
+        return slotOn(MONDAY, startHour, startMinute, endHour, endMinute);
+    }
+
+    private static FreeBusyIndex.Slot slotOn(LocalDate day, int startHour, int startMinute, int endHour, int endMinute) {
+        return new FreeBusyIndex.Slot(LocalDateTime.of(day, LocalTime.of(startHour, startMinute)),
+                LocalDateTime.of(day, LocalTime.of(endHour, endMinute)));
+    }
+}
@@ -0,0 +1,175 @@
+package com.teamHelper.calendar;
+
+import com.sun.net.httpserver.HttpServer;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarAccountsChangedEvent;
+import com.teamHelper.config.CalendarCredentials;
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IcsCalendarSourceTest {
+
+    private HttpServer server;
+    private IcsCalendarSource source;
+    private CalendarAccountConfig account;
+    private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/feed.ics", exchange -> {
+            String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+            ifNoneMatch.add(String.valueOf(etag));
+            if ("\"v1\"".equals(etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            byte[] bytes = feed().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            exchange.getResponseHeaders().set("Content-Type", "text/calendar");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.createContext("/weekly.ics", exchange -> {
+            byte[] bytes = weeklyFeed().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("ETag", "\"w1\"");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+
+        source = new IcsCalendarSource(new CalDavTransportFactory(CalDavTransport.Settings.defaults()));
+        account = new CalendarAccountConfig("public", "http://127.0.0.1:" + server.getAddress().getPort() + "/feed.ics", 1L, "mm");
+        account.setProvider("ics");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        source.close();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldKeepOnlyWindowAndReuseOnNotModified() throws Exception {
+        List<CalendarEvent> first = source.getUpcomingEvents(account);
+        List<CalendarEvent> second = source.getUpcomingEvents(account);
+
+        // Событие прошлого года отброшено, остались сегодняшнее и завтрашнее
+        assertEquals(2, first.size());
+        assertSame(first, second);
+        assertEquals(List.of("null", "\"v1\""), ifNoneMatch);
+    }
+
+    @Test
+    void shouldEvictOccurrencesOfRemovedAccount() throws Exception {
+        CalendarAccountConfig weekly = new CalendarAccountConfig("weekly",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/weekly.ics", 2L, "mm");
+        weekly.setProvider("ics");
+        CalendarFetchEngine engine = new CalendarFetchEngine(new CalendarSourceRegistry(List.of(source)), 1, 5_000);
+
+        try {
+            assertFalse(engine.fetchAll(List.of(weekly)).eventsByAccount().get("weekly").isEmpty());
+            assertEquals(1, source.cachedOccurrences());
+
+            // Календарь удалён из файла при перечитывании
+            engine.onAccountsChanged(new CalendarAccountsChangedEvent(List.of(), List.of(weekly), List.of()));
+
+            assertEquals(0, source.cachedOccurrences());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void shouldKeepSeparateTransportsPerPassword() throws Exception {
+        String url = account.getUrl();
+        CalendarAccountConfig first = new CalendarAccountConfig("first", url, 2L, "mm");
+        first.setProvider("ics");
+        first.setCredentials(new CalendarCredentials("robot", "old"));
+        CalendarAccountConfig second = new CalendarAccountConfig("second", url, 3L, "mm");
+        second.setProvider("ics");
+        second.setCredentials(new CalendarCredentials("robot", "new"));
+
+        source.getUpcomingEvents(first);
+        source.getUpcomingEvents(second);
+        assertEquals(2, source.openTransports());
+
+        // Первый перешёл на новый пароль - пул со старым закрыт
+        first.setCredentials(new CalendarCredentials("robot", "new"));
+        source.getUpcomingEvents(first);
+        assertEquals(1, source.openTransports());
+
+        source.forget("first");
+        assertEquals(1, source.openTransports());
+        source.forget("second");
+        assertEquals(0, source.openTransports());
+    }
+
+    @Test
+    void shouldTranslateWebcalScheme() {
+        assertEquals("https://example.com/a.ics", IcsCalendarSource.httpUrl("webcal://example.com/a.ics"));
+        assertEquals("http://example.com/a.ics", IcsCalendarSource.httpUrl("http://example.com/a.ics"));
+    }
+
+    private static String feed() {
+        String today = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        String tomorrow = LocalDate.now().plusDays(1).format(DateTimeFormatter.BASIC_ISO_DATE);
+        String lastYear = LocalDate.now().minusYears(1).format(DateTimeFormatter.BASIC_ISO_DATE);
+        return String.join("\r\n",
+                "BEGIN:VCALENDAR",
+                "VERSION:2.0",
+                "PRODID:test",
+                event("old", lastYear),
+                event("today", today),
+                event("tomorrow", tomorrow),
+                "END:VCALENDAR",
+                "");
+    }
+
+    private static String weeklyFeed() {
+        String today = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        return String.join("\r\n",
+                "BEGIN:VCALENDAR",
+                "VERSION:2.0",
+                "PRODID:test",
+                "BEGIN:VEVENT",
+                "UID:standup",
+                "DTSTAMP:20240101T000000Z",
+                "DTSTART:" + today + "T100000",
+                "DTEND:" + today + "T101500",
+                "RRULE:FREQ=DAILY",
+                "SUMMARY:standup",
+                "END:VEVENT",
+                "END:VCALENDAR",
+                "");
+    }
+
+    private static String event(String uid, String day) {
+        return String.join("\r\n",
+                "BEGIN:VEVENT",
+                "UID:" + uid,
+                "DTSTAMP:20240101T000000Z",
+                "DTSTART:" + day + "T100000",
+                "DTEND:" + day + "T103000",
+                "SUMMARY:" + uid,
+                "END:VEVENT");
+    }
+}
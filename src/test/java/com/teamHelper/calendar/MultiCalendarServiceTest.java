@@ -0,0 +1,39 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarAccountsProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.teamHelper.calendar.TestEvents.event;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MultiCalendarServiceTest {
+
+    @Test
+    void shouldReturnOnlyTodayFromRollingWindow() {
+        CalendarAccountConfig account = new CalendarAccountConfig("team", "http://localhost/team", 7L, "mm");
+        CalendarAccountsProperties properties = mock(CalendarAccountsProperties.class);
+        when(properties.getAccounts()).thenReturn(List.of(account));
+
+        LocalDateTime today = LocalDate.now().atTime(10, 0);
+        CalendarFetchEngine engine = mock(CalendarFetchEngine.class);
+        when(engine.fetchAll(anyList())).thenReturn(new CalendarFetchEngine.FetchResult(
+                Map.of("team", List.of(event("yesterday", today.minusDays(1)), event("standup", today),
+                        event("tomorrow", today.plusDays(1)))),
+                List.of(), List.of()));
+
+        List<MultiCalendarService.EventWithChat> events = new MultiCalendarService(properties, engine).getAllEventsForToday();
+
+        assertEquals(1, events.size());
+        assertEquals("standup", events.get(0).event().getId());
+        assertEquals(7L, events.get(0).chatId());
+    }
+}
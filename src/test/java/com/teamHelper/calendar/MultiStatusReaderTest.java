@@ -0,0 +1,67 @@
+package com.teamHelper.calendar;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiStatusReaderTest {
+
+    private final MultiStatusReader reader = new MultiStatusReader();
+
+    @Test
+    void shouldEmitOneResourcePerResponse() throws Exception {
+        String xml = "\uFEFF<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<d:multistatus xmlns:d=\"DAV:\" xmlns:c=\"urn:ietf:params:xml:ns:caldav\">" +
+                "<d:response><d:href>/cal/a.ics</d:href><d:propstat><d:prop>" +
+                "<d:getetag>\"1\"</d:getetag>" +
+                "<c:calendar-data><![CDATA[BEGIN:VCALENDAR\r\nEND:VCALENDAR]]></c:calendar-data>" +
+                "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>" +
+                "<d:response><d:href>/cal/b.ics</d:href><d:propstat><d:prop>" +
+                "<d:getetag>\"2\"</d:getetag>" +
+                "</d:prop></d:propstat></d:response>" +
+                "</d:multistatus>";
+
+        List<DavResource> resources = new ArrayList<>();
+        int count = reader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), resources::add);
+
+        assertEquals(2, count);
+        // XML-парсер нормализует CRLF в LF
+        assertEquals(new DavResource("/cal/a.ics", "\"1\"", "BEGIN:VCALENDAR\nEND:VCALENDAR"), resources.get(0));
+        assertEquals("/cal/b.ics", resources.get(1).href());
+        assertNull(resources.get(1).calendarData());
+    }
+
+    @Test
+    void shouldSkipResponsesWithoutHref() throws Exception {
+        String xml = "<d:multistatus xmlns:d=\"DAV:\"><d:response><d:status>HTTP/1.1 404</d:status></d:response></d:multistatus>";
+
+        List<DavResource> resources = new ArrayList<>();
+        reader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), resources::add);
+
+        assertTrue(resources.isEmpty());
+    }
+
+    @Test
+    void shouldReadCollectionTags() throws Exception {
+        String xml = "<d:multistatus xmlns:d=\"DAV:\" xmlns:cs=\"http://calendarserver.org/ns/\">" +
+                "<d:response><d:href>/cal/work/</d:href><d:propstat><d:prop>" +
+                "<cs:getctag>42</cs:getctag><d:sync-token>http://example.com/sync/7</d:sync-token>" +
+                "</d:prop></d:propstat></d:response>" +
+                "<d:response><d:href>/cal/home/</d:href><d:propstat><d:prop>" +
+                "<d:sync-token>http://example.com/sync/9</d:sync-token>" +
+                "</d:prop></d:propstat></d:response>" +
+                "</d:multistatus>";
+
+        List<DavResource> resources = new ArrayList<>();
+        reader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), resources::add);
+
+        assertEquals("42", resources.get(0).collectionTag());
+        // Без getctag метка коллекции - sync-token
+        assertEquals("http://example.com/sync/9", resources.get(1).collectionTag());
+    }
+}
@@ -0,0 +1,47 @@
+package com.teamHelper.calendar;
+
+import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.Period;
+import net.fortuna.ical4j.model.PeriodList;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccurrenceCacheTest {
+
+    private final OccurrenceCache cache = new OccurrenceCache();
+
+    @Test
+    void shouldInvalidateWhenStampChanges() {
+        OccurrenceCache.Stamp stamp = new OccurrenceCache.Stamp("\"1\"", 0, 0, 1000);
+        cache.put("team", "uid", stamp, occurrences(List.of()));
+
+        assertNotNull(cache.get("team", "uid", stamp));
+        assertNull(cache.get("team", "uid", new OccurrenceCache.Stamp("\"2\"", 0, 0, 1000)));
+        assertNull(cache.get("team", "uid", new OccurrenceCache.Stamp("\"1\"", 1, 0, 1000)));
+        assertNull(cache.get("other", "uid", stamp));
+
+        cache.retainOnly("team", Set.of());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldMarkOverriddenInstances() {
+        OccurrenceCache.Occurrences occurrences = occurrences(List.of(200_000L));
+
+        assertEquals(2, occurrences.size());
+        assertFalse(occurrences.isOverridden(0));
+        assertTrue(occurrences.isOverridden(1));
+        assertEquals(260_000L, occurrences.end(1));
+    }
+
+    private OccurrenceCache.Occurrences occurrences(List<Long> overrides) {
+        PeriodList periods = new PeriodList();
+        periods.add(new Period(new DateTime(100_000L), new DateTime(160_000L)));
+        periods.add(new Period(new DateTime(200_000L), new DateTime(260_000L)));
+        return OccurrenceCache.Occurrences.from(periods, overrides);
+    }
+}
@@ -0,0 +1,86 @@
+package com.teamHelper.calendar;
+
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.model.Calendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор calendar-data одного опроса: прежний путь (trim + два replaceAll и новый CalendarBuilder на каждый блок)
+ * против {@link ParserContext}, плюс форматирование границ запроса. Сравнивать gc.alloc.rate.norm из -prof gc.
+ * Запуск: mvn -o -Pbenchmark verify -Dbenchmark.include=ParserContextBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserContextBenchmark {
+
+    @Param({"50", "500"})
+    private int events;
+
+    private String[] blocks;
+    private LocalDateTime start;
+    private final CalendarQueryBuilder queryBuilder = new CalendarQueryBuilder();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        blocks = new String[events];
+        for (int i = 0; i < events; i++) {
+            blocks[i] = CalDavFixtures.calendarData(i);
+        }
+        start = LocalDate.now().atStartOfDay();
+    }
+
+    @Benchmark
+    public void parseLegacy(Blackhole blackhole) throws Exception {
+        for (String block : blocks) {
+            String icalContent = block.trim()
+                    .replaceAll("\r", "")
+                    .replaceAll("\n ", "\n");
+            Calendar calendar = new CalendarBuilder().build(new StringReader(icalContent));
+            blackhole.consume(calendar);
+        }
+    }
+
+    @Benchmark
+    public void parseWithContext(Blackhole blackhole) throws Exception {
+        ParserContext context = ParserContext.current();
+        for (String block : blocks) {
+            blackhole.consume(context.parseCalendarData(block));
+        }
+    }
+
+    @Benchmark
+    public String formatIcalTimeLegacy() {
+        return start.atZone(ZoneId.of("Europe/Moscow"))
+                .withZoneSameInstant(ZoneOffset.UTC)
+                .format(DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'"));
+    }
+
+    @Benchmark
+    public String formatIcalTime() {
+        return queryBuilder.formatIcalTime(start);
+    }
+}
@@ -0,0 +1,58 @@
+package com.teamHelper.calendar;
+
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.model.Calendar;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParserContextTest {
+
+    private final ParserContext context = ParserContext.current();
+
+    @Test
+    void shouldNormalizeLikeRegexReplace() {
+        String[] samples = {
+                "  BEGIN:VCALENDAR\r\nSUMMARY:a\r\n  two spaces\r\n\r\n tail\n\r x \r\n",
+                "\n \n\n ",
+                "no breaks",
+                "",
+                "\r\r\n \r"
+        };
+        for (String sample : samples) {
+            String expected = sample.trim().replaceAll("\r", "").replaceAll("\n ", "\n");
+            assertEquals(expected, context.normalize(sample), () -> "Образец: " + sample.replace("\r", "\\r"));
+        }
+    }
+
+    @Test
+    void shouldReuseBuilderAcrossCalendars() throws Exception {
+        for (int i = 0; i < 12; i++) {
+            String data = CalDavFixtures.calendarData(i);
+            Calendar expected = new CalendarBuilder().build(new StringReader(context.normalize(data)));
+
+            assertEquals(expected, context.parseCalendarData(data));
+        }
+    }
+
+    @Test
+    void shouldRecoverAfterBrokenCalendar() throws Exception {
+        assertThrows(Exception.class, () -> context.parseCalendarData("BEGIN:VCALENDAR\r\nBEGIN:VEVENT\r\nGARBAGE"));
+
+        assertNotNull(context.parseCalendarData(CalDavFixtures.calendarData(1)));
+        assertNull(context.parseCalendarData(" \r\n "));
+    }
+
+    @Test
+    void shouldGiveEachThreadOwnContext() throws Exception {
+        ParserContext[] other = new ParserContext[1];
+        Thread thread = new Thread(() -> other[0] = ParserContext.current());
+        thread.start();
+        thread.join();
+
+        assertSame(context, ParserContext.current());
+        assertNotSame(context, other[0]);
+    }
+}
@@ -0,0 +1,108 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.bot.DeliveryChannel;
+import com.teamHelper.bot.MessageBuilder;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.model.CalendarEvent;
+import com.teamHelper.notification.NotificationLedger;
+import com.teamHelper.notification.NotificationScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Такт опроса после того, как источник вернул снимок календаря, как в YandexCalendarService.refresh:
+ * сверка с EventStore, выборка событий на сутки, перестановка таймеров напоминаний и рендер уведомлений.
+ * sameTable - снимок из кэша источника (getctag не изменился), иначе новая EventTable с теми же событиями.
+ * Смотреть на gc.alloc.rate.norm: это мусор чтения строк таблицы за один такт.
+ * Запуск: mvn -o -Pbenchmark verify -Dbenchmark.include=PollTickBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PollTickBenchmark {
+
+    private static final int SERIES = 50;
+
+    @Param({"500", "5000"})
+    private int occurrences;
+
+    @Param({"true", "false"})
+    private boolean sameTable;
+
+    private final CalendarAccountConfig account = new CalendarAccountConfig("bench", "http://localhost/bench", 1L, "mm");
+    private List<CalendarEvent> first;
+    private List<CalendarEvent> second;
+    private boolean flip;
+    private LocalDateTime dayStart;
+    private LocalDateTime dayEnd;
+
+    private EventStore eventStore;
+    private NotificationScheduler scheduler;
+    private MessageBuilder messageBuilder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Сутки начинаются через час, чтобы ни один таймер не сработал во время замера
+        dayStart = LocalDateTime.now().plusHours(1).truncatedTo(ChronoUnit.MINUTES);
+        dayEnd = dayStart.plusDays(1);
+        first = table().asList();
+        second = sameTable ? first : table().asList();
+
+        eventStore = new EventStore();
+        // Журнал без базы: isSent читает только карту в памяти
+        scheduler = new NotificationScheduler(null, new NotificationLedger(null, 200));
+        messageBuilder = new MessageBuilder();
+        eventStore.replace(account.getId(), second);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void tick(Blackhole blackhole) {
+        flip = !flip;
+        blackhole.consume(eventStore.replace(account.getId(), flip ? first : second));
+
+        List<CalendarEvent> today = eventStore.between(account.getId(), dayStart, dayEnd);
+        scheduler.reconcile(account, today);
+        for (CalendarEvent event : today) {
+            blackhole.consume(messageBuilder.render(event, DeliveryChannel.TELEGRAM));
+        }
+    }
+
+    private EventTable table() {
+        EventTable table = new EventTable(occurrences);
+        long base = dayStart.atZone(ParserContext.ZONE).toInstant().toEpochMilli();
+        // Экземпляры равномерно по недельному окну, на сутки такта приходится седьмая часть
+        long step = TimeUnit.DAYS.toMillis(7) / occurrences;
+        for (int i = 0; i < occurrences; i++) {
+            int series = i % SERIES;
+            long start = base + i * step;
+            table.addOccurrence("series-" + series + "@yandex.ru", start, start + 1_800_000,
+                    "Встреча команды " + series, null, null, "https://telemost.yandex.ru/j/" + (1000 + series));
+        }
+        return table;
+    }
+}
@@ -0,0 +1,28 @@
+package com.teamHelper.calendar;
+
+import com.teamHelper.model.CalendarEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * События для тестов: id служит и названием, по умолчанию встреча идёт 30 минут.
+ */
+public final class TestEvents {
+
+    private TestEvents() {
+    }
+
+    public static CalendarEvent event(String id, LocalDateTime start) {
+        return event(id, start, start.plusMinutes(30));
+    }
+
+    //end = null - событие без конца
+    public static CalendarEvent event(String id, LocalDateTime start, LocalDateTime end) {
+        CalendarEvent event = new CalendarEvent();
+        event.setId(id);
+        event.setTitle(id);
+        event.setStart(start);
+        event.setEnd(end);
+        return event;
+    }
+}
@@ -0,0 +1,305 @@
+package com.teamHelper.calendar;
+
+import com.sun.net.httpserver.HttpServer;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarCredentials;
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YandexCalDavServiceTest {
+
+    private HttpServer server;
+    private YandexCalDavService service;
+    private CalendarAccountConfig account;
+
+    private final Map<String, String[]> resources = new ConcurrentHashMap<>();
+    private final AtomicInteger fullQueries = new AtomicInteger();
+    private final AtomicInteger etagQueries = new AtomicInteger();
+    private final AtomicInteger multigets = new AtomicInteger();
+    private final AtomicInteger propfinds = new AtomicInteger();
+    private final Map<String, String> ctags = new ConcurrentHashMap<>();
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean rejectPropfind = new AtomicBoolean();
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/cal/", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String response;
+            if ("PROPFIND".equals(exchange.getRequestMethod())) {
+                propfinds.incrementAndGet();
+                if (rejectPropfind.get()) {
+                    exchange.sendResponseHeaders(405, -1);
+                    exchange.close();
+                    return;
+                }
+                response = collectionTags(exchange.getRequestURI().getPath(),
+                        "1".equals(exchange.getRequestHeaders().getFirst("Depth")));
+            } else if (body.contains("calendar-multiget")) {
+                multigets.incrementAndGet();
+                response = multistatus(resources.keySet().stream().filter(body::contains).toList(), true);
+            } else if (body.contains("calendar-data")) {
+                authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+                fullQueries.incrementAndGet();
+                response = multistatus(List.copyOf(resources.keySet()), true);
+            } else {
+                etagQueries.incrementAndGet();
+                response = multistatus(List.copyOf(resources.keySet()), false);
+            }
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(207, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+
+        service = new YandexCalDavService("http://127.0.0.1/", "user", "pass",
+                new CalDavTransportFactory(CalDavTransport.Settings.defaults()));
+        ReflectionTestUtils.setField(service, "calendarQueryBuilder", new CalendarQueryBuilder());
+        account = new CalendarAccountConfig("team", "http://127.0.0.1:" + server.getAddress().getPort() + "/cal/", 1L, "mm");
+
+        putEvent("/cal/a.ics", "\"1\"", "a", "Standup", 10);
+        putEvent("/cal/b.ics", "\"1\"", "b", "Review", 15);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.stop(0);
+        service.close();
+    }
+
+    @Test
+    void shouldFetchOnlyChangedResources() throws Exception {
+        assertEquals(2, service.getUpcomingEvents(account).size());
+        assertEquals(1, fullQueries.get());
+
+        // Ничего не изменилось - только ETag запрос без multiget
+        assertEquals(2, service.getUpcomingEvents(account).size());
+        assertEquals(1, etagQueries.get());
+        assertEquals(0, multigets.get());
+
+        putEvent("/cal/b.ics", "\"2\"", "b", "Review moved", 16);
+        resources.remove("/cal/a.ics");
+
+        List<CalendarEvent> events = service.getUpcomingEvents(account);
+        assertEquals(1, events.size());
+        assertEquals("Review moved", events.get(0).getTitle());
+        assertEquals(1, multigets.get());
+        assertEquals(1, fullQueries.get());
+    }
+
+    @Test
+    void shouldExpandRecurringEventWithOverride() throws Exception {
+        service.setWindowDays(2);
+        resources.clear();
+        String tomorrow = LocalDate.now().plusDays(1).format(DateTimeFormatter.BASIC_ISO_DATE);
+        resources.put("/cal/daily.ics", new String[]{"\"1\"", String.join("\r\n",
+                "BEGIN:VCALENDAR",
+                "VERSION:2.0",
+                "PRODID:test",
+                "BEGIN:VEVENT",
+                "UID:daily",
+                "DTSTAMP:20240101T000000Z",
+                "DTSTART:20240101T100000",
+                "DTEND:20240101T101500",
+                "RRULE:FREQ=DAILY",
+                "SUMMARY:Daily",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:daily",
+                "DTSTAMP:20240101T000000Z",
+                "RECURRENCE-ID:" + tomorrow + "T100000",
+                "DTSTART:" + tomorrow + "T120000",
+                "DTEND:" + tomorrow + "T121500",
+                "SUMMARY:Daily moved",
+                "END:VEVENT",
+                "END:VCALENDAR")});
+
+        List<CalendarEvent> first = service.getUpcomingEvents(account);
+        List<CalendarEvent> second = service.getUpcomingEvents(account);
+
+        // Вчера, сегодня и перенесённый завтрашний экземпляр
+        assertEquals(3, first.size());
+        assertEquals(1, first.stream().filter(e -> e.getTitle().equals("Daily moved")).count());
+        // Завтрашний экземпляр мастер-события заменён переопределением
+        assertEquals(1, first.stream()
+                .filter(e -> e.getTitle().equals("Daily"))
+                .filter(e -> e.getStart().isAfter(LocalDate.now().atStartOfDay()))
+                .count());
+        assertEquals(first.size(), second.size());
+    }
+
+    @Test
+    void shouldUseAccountCredentialsWithSeparatePool() throws Exception {
+        CalendarAccountConfig sharded = new CalendarAccountConfig("sharded", account.getUrl(), 2L, "mm");
+        sharded.setCredentials(new CalendarCredentials("robot-2", "secret"));
+
+        service.getUpcomingEvents(account);
+        service.getUpcomingEvents(sharded);
+
+        // user:pass и robot-2:secret
+        assertEquals(List.of("Basic dXNlcjpwYXNz", "Basic cm9ib3QtMjpzZWNyZXQ="), authorizations);
+        assertEquals(2, service.poolStats().size());
+    }
+
+    @Test
+    void shouldCloseTransportAfterPasswordRotationAndRemoval() throws Exception {
+        CalendarAccountConfig sharded = new CalendarAccountConfig("sharded", account.getUrl(), 2L, "mm");
+        sharded.setCredentials(new CalendarCredentials("robot-2", "secret"));
+        service.getUpcomingEvents(account);
+        service.getUpcomingEvents(sharded);
+        assertEquals(2, service.openTransports());
+
+        // Пароль сменили: пул со старым паролем больше никому не нужен
+        sharded.setCredentials(new CalendarCredentials("robot-2", "rotated"));
+        service.getUpcomingEvents(sharded);
+        assertEquals(2, service.openTransports());
+
+        service.forget("sharded");
+        assertEquals(1, service.openTransports());
+    }
+
+    @Test
+    void shouldSkipReportWhenCollectionTagUnchanged() throws Exception {
+        ctags.put("/cal/", "ctag-1");
+
+        assertEquals(2, service.getUpcomingEvents(account).size());
+        assertEquals(1, fullQueries.get());
+
+        // getctag тот же - ни REPORT, ни разбора
+        assertEquals(2, service.getUpcomingEvents(account).size());
+        assertEquals(2, propfinds.get());
+        assertEquals(0, etagQueries.get());
+        assertEquals(0, multigets.get());
+
+        putEvent("/cal/b.ics", "\"2\"", "b", "Review moved", 16);
+        ctags.put("/cal/", "ctag-2");
+
+        List<CalendarEvent> events = service.getUpcomingEvents(account);
+        assertTrue(events.stream().anyMatch(e -> e.getTitle().equals("Review moved")));
+        assertEquals(1, etagQueries.get());
+        assertEquals(1, multigets.get());
+    }
+
+    @Test
+    void shouldNotRepeatRejectedPropfindEveryPoll() throws Exception {
+        rejectPropfind.set(true);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(2, service.getUpcomingEvents(account).size());
+        }
+
+        // Сервер отверг PROPFIND один раз - дальше только REPORT
+        assertEquals(1, propfinds.get());
+        assertEquals(1, fullQueries.get());
+        assertEquals(2, etagQueries.get());
+    }
+
+    @Test
+    void shouldRefetchResourceThatFailedToParse() throws Exception {
+        ctags.put("/cal/", "ctag-1");
+        resources.put("/cal/c.ics", new String[]{"\"1\"", "BEGIN:VCALENDAR\r\nBEGIN:VEVENT\r\nDTSTART;BROKEN"});
+
+        assertEquals(2, service.getUpcomingEvents(account).size());
+
+        // Метка коллекции та же, но битый ресурс в прошлый раз не разобрался - его нужно перезапросить
+        putEvent("/cal/c.ics", "\"1\"", "c", "Retro", 17);
+        List<CalendarEvent> events = service.getUpcomingEvents(account);
+
+        assertEquals(3, events.size());
+        assertEquals(1, multigets.get());
+    }
+
+    @Test
+    void shouldProbeSiblingCalendarsWithSinglePropfind() throws Exception {
+        String home = account.getUrl();
+        CalendarAccountConfig work = new CalendarAccountConfig("work", home + "work/", 1L, "mm");
+        CalendarAccountConfig team = new CalendarAccountConfig("team2", home + "team%20two/", 2L, "mm");
+        ctags.put("/cal/work/", "w-1");
+        ctags.put("/cal/team two/", "t-1");
+
+        service.getUpcomingEvents(work);
+        service.getUpcomingEvents(team);
+        propfinds.set(0);
+
+        service.prepare(List.of(work, team));
+        service.getUpcomingEvents(work);
+        service.getUpcomingEvents(team);
+
+        // Один PROPFIND Depth 1 на /cal/ вместо двух Depth 0
+        assertEquals(1, propfinds.get());
+        assertEquals(2, fullQueries.get());
+        assertEquals(0, etagQueries.get());
+    }
+
+    private void putEvent(String href, String etag, String uid, String title, int hour) {
+        String day = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        String ical = String.join("\r\n",
+                "BEGIN:VCALENDAR",
+                "VERSION:2.0",
+                "PRODID:test",
+                "BEGIN:VEVENT",
+                "UID:" + uid,
+                "DTSTAMP:" + day + "T000000Z",
+                "DTSTART:" + day + "T" + String.format("%02d", hour) + "0000",
+                "DTEND:" + day + "T" + String.format("%02d", hour) + "3000",
+                "SUMMARY:" + title,
+                "END:VEVENT",
+                "END:VCALENDAR");
+        resources.put(href, new String[]{etag, ical});
+    }
+
+    private String collectionTags(String path, boolean children) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<d:multistatus xmlns:d=\"DAV:\" xmlns:cs=\"http://calendarserver.org/ns/\">");
+        ctags.forEach((collection, ctag) -> {
+            boolean match = children
+                    ? collection.startsWith(path) && !collection.equals(path)
+                    : collection.equals(path);
+            if (match) {
+                xml.append("<d:response><d:href>").append(collection.replace(" ", "%20"))
+                        .append("</d:href><d:propstat><d:prop><cs:getctag>").append(ctag)
+                        .append("</cs:getctag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>");
+            }
+        });
+        if (!children && !ctags.containsKey(path)) {
+            xml.append("<d:response><d:href>").append(path).append("</d:href><d:propstat><d:prop><cs:getctag/>")
+                    .append("</d:prop><d:status>HTTP/1.1 404 Not Found</d:status></d:propstat></d:response>");
+        }
+        return xml.append("</d:multistatus>").toString();
+    }
+
+    private String multistatus(List<String> hrefs, boolean withData) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<d:multistatus xmlns:d=\"DAV:\" xmlns:c=\"urn:ietf:params:xml:ns:caldav\">");
+        for (String href : hrefs) {
+            String[] resource = resources.get(href);
+            xml.append("<d:response><d:href>").append(href).append("</d:href><d:propstat><d:prop>")
+                    .append("<d:getetag>").append(resource[0]).append("</d:getetag>");
+            if (withData) {
+                xml.append("<c:calendar-data>").append(resource[1]).append("</c:calendar-data>");
+            }
+            xml.append("</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>");
+        }
+        return xml.append("</d:multistatus>").toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.teamHelper.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterMembershipTest {
+
+    private static final long LEASE = 15_000;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final List<String> accounts = IntStream.range(0, 50).mapToObj(i -> "calendar-" + i).toList();
+
+    private final List<ClusterMembership> nodes = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ClusterMembership::shutdown);
+    }
+
+    @Test
+    void shouldGiveEachAccountToExactlyOneNode() {
+        ClusterMembership first = join("node-a");
+        ClusterMembership second = join("node-b");
+        first.heartbeat();
+
+        assertEquals(List.of("node-a", "node-b"), first.members());
+        for (String account : accounts) {
+            assertTrue(first.owns(account) ^ second.owns(account), account);
+        }
+        assertTrue(accounts.stream().anyMatch(first::owns));
+        assertTrue(accounts.stream().anyMatch(second::owns));
+    }
+
+    @Test
+    void shouldTakeOverAccountsOfExpiredNode() {
+        ClusterMembership first = join("node-a");
+        ClusterMembership second = join("node-b");
+
+        // node-b перестал продлевать аренду
+        clock.addAndGet(LEASE + 1);
+        first.heartbeat();
+
+        assertEquals(List.of("node-a"), first.members());
+        assertTrue(accounts.stream().allMatch(first::owns));
+        assertTrue(accounts.stream().noneMatch(second::owns), "Узел без аренды ничем не владеет");
+    }
+
+    @Test
+    void shouldRebalanceImmediatelyWhenNodeLeaves() {
+        ClusterMembership first = join("node-a");
+        ClusterMembership second = join("node-b");
+
+        second.shutdown();
+        first.heartbeat();
+
+        assertEquals(List.of("node-a"), first.members());
+    }
+
+    @Test
+    void shouldOwnEverythingWhenClusterIsDisabled() {
+        ClusterMembership standalone = new ClusterMembership(jdbcTemplate, false, "solo", 5_000, LEASE, clock::get);
+        standalone.init();
+
+        assertTrue(accounts.stream().allMatch(standalone::owns));
+    }
+
+    private ClusterMembership join(String nodeId) {
+        ClusterMembership membership = new ClusterMembership(jdbcTemplate, true, nodeId, 5_000, LEASE, clock::get);
+        membership.init();
+        nodes.add(membership);
+        return membership;
+    }
+}
@@ -0,0 +1,41 @@
+package com.teamHelper.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+
+    @Test
+    void shouldSpreadKeysEvenly() {
+        HashRing ring = new HashRing(List.of("node-a", "node-b", "node-c"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3_000; i++) {
+            counts.merge(ring.owner("calendar-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 700 && count < 1300, "Перекос: " + counts));
+    }
+
+    @Test
+    void shouldMoveOnlyKeysOfDepartedNode() {
+        HashRing before = new HashRing(List.of("node-a", "node-b", "node-c"), 128);
+        HashRing after = new HashRing(List.of("node-c", "node-a"), 128);
+
+        for (int i = 0; i < 1_000; i++) {
+            String key = "calendar-" + i;
+            String owner = before.owner(key);
+            if (!owner.equals("node-b")) {
+                assertEquals(owner, after.owner(key), key);
+            }
+        }
+        assertEquals(List.of("node-a", "node-c"), after.members());
+        assertNull(new HashRing(List.of(), 128).owner("calendar-1"));
+    }
+}
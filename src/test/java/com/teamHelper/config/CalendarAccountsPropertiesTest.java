@@ -0,0 +1,146 @@
+package com.teamHelper.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalendarAccountsPropertiesTest {
+
+    private static final String TEAM = """
+              - id: team
+                url: https://caldav.yandex.ru/calendars/bot@yandex.ru/events-1/
+                telegramChatId: -100
+                mmChatId: mm-team
+            """;
+
+    private static final String OPS = """
+              - id: ops
+                url: https://cloud.example.com/remote.php/dav/calendars/ops/
+                telegramChatId: -200
+                mmChatId: mm-ops
+                provider: CalDAV
+                username: ops-bot
+                password: secret
+                readTimeoutMs: 30000
+            """;
+
+    @TempDir
+    Path directory;
+
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private CalendarAccountsProperties properties;
+
+    @AfterEach
+    void tearDown() {
+        if (properties != null) {
+            properties.shutdown();
+        }
+    }
+
+    @Test
+    void shouldLoadAccountsFromYaml() throws Exception {
+        Path file = write("calendars.yml", "calendars:\n" + TEAM + OPS);
+        start(file);
+
+        List<CalendarAccountConfig> accounts = properties.getAccounts();
+        assertEquals(List.of("team", "ops"), accounts.stream().map(CalendarAccountConfig::getId).toList());
+        CalendarAccountConfig ops = accounts.get(1);
+        assertEquals("caldav", ops.getProvider());
+        assertEquals(new CalendarCredentials("ops-bot", "secret"), ops.getCredentials());
+        assertEquals(30_000, ops.getReadTimeoutMs());
+        assertEquals("yandex", accounts.get(0).getProvider());
+        assertThrows(UnsupportedOperationException.class, () -> accounts.remove(0));
+    }
+
+    @Test
+    void shouldPublishDifferenceOnReload() throws Exception {
+        Path file = write("calendars.yml", "calendars:\n" + TEAM + OPS);
+        start(file);
+        List<CalendarAccountConfig> before = properties.getAccounts();
+
+        write("calendars.yml", "calendars:\n" + TEAM.replace("-100", "-101") + """
+                  - id: qa
+                    url: https://calendar.example.com/qa.ics
+                    telegramChatId: -300
+                    mmChatId: mm-qa
+                    provider: ics
+                """);
+        assertTrue(properties.reload());
+
+        CalendarAccountsChangedEvent change = (CalendarAccountsChangedEvent) events.get(0);
+        assertEquals(List.of("qa"), ids(change.added()));
+        assertEquals(List.of("ops"), ids(change.removed()));
+        assertEquals(List.of("team"), ids(change.changed()));
+        assertEquals(-101L, change.changed().get(0).getTelegramChatId());
+        // Прежний снимок у тех, кто его уже взял, не меняется
+        assertEquals(List.of("team", "ops"), ids(before));
+
+        assertTrue(properties.reload());
+        assertEquals(1, events.size(), "Файл не менялся - события нет");
+    }
+
+    @Test
+    void shouldKeepSnapshotWhenFileIsBroken() throws Exception {
+        Path file = write("calendars.yml", "calendars:\n" + TEAM);
+        start(file);
+
+        write("calendars.yml", "calendars:\n  - id: team\n    urll: typo\n");
+
+        assertFalse(properties.reload());
+        assertEquals(List.of("team"), ids(properties.getAccounts()));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void shouldReadJsonAndSkipIncompleteEntries() throws Exception {
+        Path file = write("calendars.json", """
+                {"calendars": [
+                  {"id": "team", "url": "https://example.com/team/", "telegramChatId": -100, "mmChatId": "mm"},
+                  {"id": "half", "url": "https://example.com/half/"}
+                ]}
+                """);
+        start(file);
+
+        assertEquals(List.of("team"), ids(properties.getAccounts()));
+    }
+
+    @Test
+    void shouldReloadWhenFileIsReplaced() throws Exception {
+        Path file = write("calendars.yml", "calendars:\n" + TEAM);
+        start(file);
+
+        write("calendars.yml", "calendars:\n" + TEAM + OPS);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (events.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(List.of("team", "ops"), ids(properties.getAccounts()));
+        assertEquals(1, events.size());
+    }
+
+    private void start(Path file) {
+        properties = new CalendarAccountsProperties(events::add, file.toString());
+        properties.init();
+    }
+
+    // Как пишут редакторы и ConfigMap: новый файл рядом и атомарное переименование поверх старого,
+    // иначе следящий поток может прочитать файл на середине записи
+    private Path write(String name, String content) throws Exception {
+        Path next = Files.writeString(directory.resolve(name + ".tmp"), content);
+        return Files.move(next, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static List<String> ids(List<CalendarAccountConfig> accounts) {
+        return accounts.stream().map(CalendarAccountConfig::getId).toList();
+    }
+}
@@ -0,0 +1,66 @@
+package com.teamHelper.digest;
+
+import com.teamHelper.calendar.FreeBusyIndex;
+import com.teamHelper.calendar.TestEvents;
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DayTimelineTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 3);
+    private static final LocalTime WORK_START = LocalTime.of(9, 0);
+    private static final LocalTime WORK_END = LocalTime.of(18, 0);
+
+    @Test
+    void shouldMergeOverlappingAndAdjacentMeetings() {
+        DayTimeline timeline = DayTimeline.build(DAY, List.of(
+                event("review", 11, 0, 12, 0),
+                event("standup", 10, 0, 10, 30),
+                event("sync", 10, 30, 11, 15),
+                event("lunch-talk", 13, 0, 13, 45),
+                event("nested", 13, 15, 13, 30)), WORK_START, WORK_END);
+
+        assertEquals(List.of("standup", "sync", "review", "lunch-talk", "nested"),
+                timeline.meetings().stream().map(CalendarEvent::getId).toList());
+        assertEquals(List.of(interval(10, 0, 12, 0), interval(13, 0, 13, 45)), timeline.busy());
+        assertEquals(List.of(interval(9, 0, 10, 0), interval(12, 0, 13, 0), interval(13, 45, 18, 0)), timeline.free());
+    }
+
+    @Test
+    void shouldClipToWorkingDayAndDropShortGaps() {
+        DayTimeline timeline = DayTimeline.build(DAY, List.of(
+                event("early", 8, 0, 9, 30),
+                event("a", 9, 40, 12, 0),
+                event("late", 17, 50, 19, 0),
+                event("no-end", 15, 0, -1, -1)), WORK_START, WORK_END);
+
+        // Окно 9:30-9:40 короче 15 минут, встреча без конца занятость не добавляет
+        assertEquals(List.of(interval(12, 0, 17, 50)), timeline.free());
+        assertEquals(4, timeline.meetings().size());
+        assertEquals(3, timeline.busy().size());
+    }
+
+    @Test
+    void shouldBeFreeAllDayWithoutMeetings() {
+        DayTimeline timeline = DayTimeline.build(DAY, List.of(), WORK_START, WORK_END);
+
+        assertTrue(timeline.busy().isEmpty());
+        assertEquals(List.of(interval(9, 0, 18, 0)), timeline.free());
+    }
+
+    private static CalendarEvent event(String id, int startHour, int startMinute, int endHour, int endMinute) {
+        return TestEvents.event(id, DAY.atTime(startHour, startMinute), endHour < 0 ? null : DAY.atTime(endHour, endMinute));
+    }
+
+    private static FreeBusyIndex.Slot interval(int startHour, int startMinute, int endHour, int endMinute) {
+        return new FreeBusyIndex.Slot(LocalDateTime.of(DAY, LocalTime.of(startHour, startMinute)),
+                LocalDateTime.of(DAY, LocalTime.of(endHour, endMinute)));
+    }
+}
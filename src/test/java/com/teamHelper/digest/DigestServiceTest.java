@@ -0,0 +1,178 @@
+package com.teamHelper.digest;
+
+import com.teamHelper.bot.BotComponent;
+import com.teamHelper.bot.DeliveryChannel;
+import com.teamHelper.bot.MessageBuilder;
+import com.teamHelper.calendar.CalendarEventsChangedEvent;
+import com.teamHelper.calendar.CalendarFetchEngine;
+import com.teamHelper.calendar.EventStore;
+import com.teamHelper.calendar.FreeBusyIndex;
+import com.teamHelper.calendar.TestEvents;
+import com.teamHelper.cluster.ClusterMembership;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.config.CalendarAccountsProperties;
+import com.teamHelper.model.CalendarEvent;
+import com.teamHelper.notification.NotificationLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DigestServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    // Два календаря команды пишут в один Telegram-чат, но в разные каналы Mattermost
+    private final CalendarAccountConfig team = new CalendarAccountConfig("team", "http://localhost/team", -100L, "mm-team");
+    private final CalendarAccountConfig ops = new CalendarAccountConfig("ops", "http://localhost/ops", -100L, "mm-ops");
+
+    private final EventStore eventStore = new EventStore();
+    private CalendarFetchEngine fetchEngine;
+    private BotComponent bot;
+    private NotificationLedger ledger;
+    private ClusterMembership cluster;
+    private FreeBusyIndex freeBusy;
+    private DigestCheckpoints checkpoints;
+    private DigestService digestService;
+
+    @BeforeEach
+    void setup() {
+        CalendarAccountsProperties properties = mock(CalendarAccountsProperties.class);
+        when(properties.getAccounts()).thenReturn(List.of(team, ops));
+        fetchEngine = mock(CalendarFetchEngine.class);
+        bot = mock(BotComponent.class);
+        ledger = mock(NotificationLedger.class);
+        when(ledger.tryClaim(anyString(), any())).thenReturn(true);
+        cluster = mock(ClusterMembership.class);
+        when(cluster.owns(anyString())).thenReturn(true);
+        checkpoints = new DigestCheckpoints(new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")));
+        checkpoints.init();
+
+        freeBusy = new FreeBusyIndex(eventStore);
+        digestService = new DigestService(properties, eventStore, freeBusy, fetchEngine, new MessageBuilder(), bot, ledger,
+                cluster, checkpoints, "0 55 8 * * *");
+    }
+
+    @Test
+    void shouldSendMergedDigestPerChatFromStoredEvents() {
+        eventStore.replace("team", List.of(event("standup", 10), event("retro", 15)));
+        eventStore.replace("ops", List.of(event("deploy", 12), event("tomorrow", 36)));
+
+        digestService.send(TODAY);
+
+        ArgumentCaptor<String> telegram = ArgumentCaptor.forClass(String.class);
+        verify(bot).sendDigest(eq(DeliveryChannel.TELEGRAM), eq("-100"), telegram.capture());
+        String text = telegram.getValue();
+        assertTrue(text.indexOf("standup") < text.indexOf("deploy") && text.indexOf("deploy") < text.indexOf("retro"), text);
+        assertFalse(text.contains("tomorrow"));
+        verify(bot).sendDigest(eq(DeliveryChannel.MATTERMOST), eq("mm-team"), contains("retro"));
+        verify(bot).sendDigest(eq(DeliveryChannel.MATTERMOST), eq("mm-ops"), contains("deploy"));
+        verifyNoInteractions(fetchEngine);
+    }
+
+    @Test
+    void shouldRerenderOnlyAfterChange() {
+        eventStore.replace("team", List.of(event("standup", 10)));
+        eventStore.replace("ops", List.of());
+        digestService.onEventsChanged(new CalendarEventsChangedEvent("team"));
+
+        eventStore.replace("team", List.of(event("standup", 10), event("planning", 11)));
+        digestService.onEventsChanged(new CalendarEventsChangedEvent("team"));
+        digestService.send(TODAY);
+
+        verify(bot).sendDigest(eq(DeliveryChannel.MATTERMOST), eq("mm-team"), contains("planning"));
+        // В канале ops встреч нет - сводка не отправляется
+        verify(bot, never()).sendDigest(eq(DeliveryChannel.MATTERMOST), eq("mm-ops"), anyString());
+    }
+
+    @Test
+    void shouldFetchOnlyCalendarsMissingFromStore() {
+        eventStore.replace("team", List.of(event("standup", 10)));
+        when(fetchEngine.fetchAll(anyList())).thenReturn(new CalendarFetchEngine.FetchResult(
+                Map.of("ops", List.of(event("deploy", 12))), List.of(), List.of()));
+
+        digestService.send(TODAY);
+
+        verify(fetchEngine).fetchAll(List.of(ops));
+        verify(bot).sendDigest(eq(DeliveryChannel.TELEGRAM), eq("-100"), contains("deploy"));
+    }
+
+    @Test
+    void shouldTakeFreeSlotsFromIndex() {
+        // Ночной релиз со вчера занимает утро, хотя начался не в день сводки
+        CalendarEvent release = event("release", -1);
+        release.setEnd(TODAY.atTime(10, 0));
+        eventStore.replace("team", List.of(release, event("standup", 11)));
+        eventStore.replace("ops", List.of());
+        freeBusy.rebuild("team");
+        freeBusy.rebuild("ops");
+
+        digestService.send(TODAY);
+
+        verify(bot).sendDigest(eq(DeliveryChannel.MATTERMOST), eq("mm-team"), contains("`10:00-11:00`, `11:30-18:00`"));
+    }
+
+    @Test
+    void shouldTakeCalendarsOfOtherNodesFromCheckpoints() {
+        when(cluster.isEnabled()).thenReturn(true);
+        when(cluster.owns("ops")).thenReturn(false);
+        eventStore.replace("team", List.of(event("standup", 10)));
+        digestService.onEventsChanged(new CalendarEventsChangedEvent("team"));
+        // Снимок ops записал узел, который его ведёт
+        checkpoints.save("ops", List.of(event("deploy", 12)), LocalDateTime.now());
+
+        digestService.send(TODAY);
+
+        verify(bot).sendDigest(eq(DeliveryChannel.TELEGRAM), eq("-100"), contains("deploy"));
+        verify(bot).sendDigest(eq(DeliveryChannel.MATTERMOST), eq("mm-team"), contains("standup"));
+        verifyNoInteractions(fetchEngine);
+        assertEquals(List.of("standup"), checkpoints.load(List.of("team")).get("team").stream()
+                .map(CalendarEvent::getId).toList());
+    }
+
+    @Test
+    void shouldFetchInClusterOnlyCalendarsWithoutCheckpoint() {
+        when(cluster.isEnabled()).thenReturn(true);
+        when(cluster.owns("ops")).thenReturn(false);
+        eventStore.replace("team", List.of(event("standup", 10)));
+        when(fetchEngine.fetchAll(anyList())).thenReturn(new CalendarFetchEngine.FetchResult(
+                Map.of("ops", List.of(event("deploy", 12))), List.of(), List.of()));
+
+        digestService.send(TODAY);
+
+        // Владелец ops ещё не опросил его после старта - остаётся только запрос к CalDAV
+        verify(fetchEngine).fetchAll(List.of(ops));
+        verify(bot).sendDigest(eq(DeliveryChannel.TELEGRAM), eq("-100"), contains("deploy"));
+    }
+
+    @Test
+    void shouldNotSendDigestClaimedElsewhere() {
+        eventStore.replace("team", List.of(event("standup", 10)));
+        eventStore.replace("ops", List.of(event("deploy", 12)));
+        when(ledger.tryClaim(startsWith("digest_TELEGRAM"), any())).thenReturn(false);
+
+        digestService.send(TODAY);
+
+        verify(bot, never()).sendDigest(eq(DeliveryChannel.TELEGRAM), anyString(), anyString());
+        verify(bot, times(2)).sendDigest(eq(DeliveryChannel.MATTERMOST), anyString(), anyString());
+    }
+
+    private static CalendarEvent event(String id, int hourFromMidnight) {
+        return TestEvents.event(id, TODAY.atStartOfDay().plusHours(hourFromMidnight));
+    }
+}
@@ -0,0 +1,91 @@
+package com.teamHelper.notification;
+
+import com.teamHelper.bot.BotComponent;
+import com.teamHelper.calendar.EventStore;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static com.teamHelper.calendar.TestEvents.event;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CatchUpServiceTest {
+
+    private static final LocalDateTime DOWN = LocalDateTime.of(2025, 3, 3, 10, 0);
+
+    private final CalendarAccountConfig account = new CalendarAccountConfig("team", "http://localhost/cal", 1L, "mm-1");
+
+    private JdbcTemplate jdbcTemplate;
+    private NotificationLedger ledger;
+    private BotComponent bot;
+    private EventStore eventStore;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        ledger = new NotificationLedger(jdbcTemplate, 100);
+        ledger.init();
+        bot = mock(BotComponent.class);
+        eventStore = new EventStore();
+    }
+
+    @Test
+    void shouldReplayRemindersMissedDuringDowntime() {
+        newService().onSynced(List.of(account), DOWN);
+
+        CalendarEvent beforeGap = event("planned", DOWN.plusMinutes(3));
+        CalendarEvent missed = event("missed", DOWN.plusMinutes(20));
+        CalendarEvent alreadySent = event("sent", DOWN.plusMinutes(25));
+        ledger.tryClaim(NotificationScheduler.notificationKey(alreadySent), alreadySent.getStart());
+        eventStore.replace("team", List.of(beforeGap, missed, alreadySent, event("upcoming", DOWN.plusMinutes(40))));
+
+        // Перезапуск: отметка последнего опроса поднимается из таблицы
+        CatchUpService restarted = newService();
+        LocalDateTime now = DOWN.plusMinutes(30);
+        restarted.onSynced(List.of(account), now);
+
+        verify(bot).sendCalendarNotification(missed, 1L, "mm-1");
+        verify(bot, times(1)).sendCalendarNotification(any(), any(), any());
+        assertEquals(now, newService().lastSynced("team"));
+
+        // Повторный опрос ничего не досылает второй раз
+        restarted.onSynced(List.of(account), now.plusMinutes(1));
+        verify(bot, times(1)).sendCalendarNotification(any(), any(), any());
+    }
+
+    @Test
+    void shouldSummarizeLongOutageAndSkipUnknownAccounts() {
+        CatchUpService service = newService();
+        service.onSynced(List.of(account), DOWN);
+        eventStore.replace("team", List.of(
+                event("a", DOWN.plusMinutes(10)),
+                event("b", DOWN.plusMinutes(15)),
+                event("c", DOWN.plusMinutes(20)),
+                event("d", DOWN.plusMinutes(25))));
+        eventStore.replace("ops", List.of(event("o", DOWN.plusMinutes(10))));
+
+        CalendarAccountConfig ops = new CalendarAccountConfig("ops", "http://localhost/ops", 2L, "mm-2");
+        service.onSynced(List.of(account, ops), DOWN.plusMinutes(30));
+
+        verify(bot).sendMissedSummary(argThat(events -> events.size() == 4), eq(1L), eq("mm-1"));
+        verify(bot, never()).sendCalendarNotification(any(), any(), any());
+        verify(bot, never()).sendMissedSummary(anyList(), eq(2L), any());
+    }
+
+    private CatchUpService newService() {
+        CatchUpService service = new CatchUpService(jdbcTemplate, ledger, bot, eventStore, 1_800_000, 3);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,82 @@
+package com.teamHelper.notification;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationLedgerTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+    }
+
+    @Test
+    void shouldClaimOnlyOnce() {
+        NotificationLedger ledger = newLedger();
+
+        assertTrue(ledger.tryClaim("evt-1_10:00", LocalDateTime.now().plusMinutes(5)));
+        assertFalse(ledger.tryClaim("evt-1_10:00", LocalDateTime.now().plusMinutes(5)));
+        assertTrue(ledger.isSent("evt-1_10:00"));
+    }
+
+    @Test
+    void shouldSurviveRestartAfterFlush() {
+        NotificationLedger ledger = newLedger();
+        ledger.tryClaim("evt-1_10:00", LocalDateTime.now().plusMinutes(5));
+        ledger.tryClaim("evt-2_11:00", LocalDateTime.now().plusHours(1));
+        ledger.shutdown();
+
+        NotificationLedger restarted = newLedger();
+
+        assertEquals(2, restarted.size());
+        assertTrue(restarted.isSent("evt-1_10:00"));
+        assertFalse(restarted.tryClaim("evt-2_11:00", LocalDateTime.now().plusHours(1)));
+    }
+
+    @Test
+    void shouldPurgeExpiredEntries() {
+        NotificationLedger ledger = newLedger();
+        ledger.tryClaim("old", LocalDateTime.now().minusDays(3));
+        ledger.tryClaim("fresh", LocalDateTime.now().plusMinutes(5));
+        ledger.flush();
+
+        ledger.purgeExpired();
+
+        assertFalse(ledger.isSent("old"));
+        assertTrue(ledger.isSent("fresh"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_ledger", Integer.class));
+    }
+
+    @Test
+    void shouldClaimOnceAcrossClusterNodes() {
+        NotificationLedger first = new NotificationLedger(jdbcTemplate, 1, true);
+        first.init();
+        NotificationLedger second = new NotificationLedger(jdbcTemplate, 1, true);
+        second.init();
+        LocalDateTime start = LocalDateTime.now().plusMinutes(5);
+
+        assertTrue(first.tryClaim("evt-1_10:00", start));
+        // Горячая копия второго узла пуста, отказ приходит из общей таблицы
+        assertFalse(second.isSent("evt-1_10:00"));
+        assertFalse(second.tryClaim("evt-1_10:00", start));
+        assertTrue(second.isSent("evt-1_10:00"));
+        assertTrue(second.tryClaim("evt-2_11:00", start));
+        assertFalse(first.tryClaim("evt-2_11:00", start));
+    }
+
+    private NotificationLedger newLedger() {
+        NotificationLedger ledger = new NotificationLedger(jdbcTemplate, 1);
+        ledger.init();
+        return ledger;
+    }
+}
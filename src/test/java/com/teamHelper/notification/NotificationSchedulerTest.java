@@ -0,0 +1,79 @@
+package com.teamHelper.notification;
+
+import com.teamHelper.bot.BotComponent;
+import com.teamHelper.config.CalendarAccountConfig;
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static com.teamHelper.calendar.TestEvents.event;
+import static com.teamHelper.calendar.CalendarConstants.NOTIFY_BEFORE_MINUTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class NotificationSchedulerTest {
+
+    private final CalendarAccountConfig account = new CalendarAccountConfig("team", "http://localhost/cal", 1L, "mm-1");
+
+    private BotComponent bot;
+    private NotificationScheduler scheduler;
+
+    @BeforeEach
+    void setup() {
+        bot = mock(BotComponent.class);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        NotificationLedger ledger = new NotificationLedger(jdbcTemplate, 100);
+        ledger.init();
+        scheduler = new NotificationScheduler(bot, ledger);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void shouldFireAtReminderTimeOnlyOnce() {
+        CalendarEvent event = event("evt-1", LocalDateTime.now().plusMinutes(NOTIFY_BEFORE_MINUTES).plusNanos(300_000_000));
+
+        scheduler.reconcile(account, List.of(event));
+        scheduler.reconcile(account, List.of(event));
+        assertEquals(1, scheduler.pendingCount());
+
+        verify(bot, timeout(2_000)).sendCalendarNotification(event, 1L, "mm-1");
+
+        scheduler.reconcile(account, List.of(event));
+        assertEquals(0, scheduler.pendingCount());
+        verify(bot, after(300).times(1)).sendCalendarNotification(any(), any(), any());
+    }
+
+    @Test
+    void shouldCancelTimerOfRemovedEvent() {
+        CalendarEvent event = event("evt-2", LocalDateTime.now().plusMinutes(NOTIFY_BEFORE_MINUTES).plusNanos(300_000_000));
+
+        scheduler.reconcile(account, List.of(event));
+        scheduler.reconcile(account, List.of());
+
+        assertEquals(0, scheduler.pendingCount());
+        verify(bot, after(600).never()).sendCalendarNotification(any(), any(), any());
+    }
+
+    @Test
+    void shouldKeepTimersOfLaterEvents() {
+        CalendarEvent event = event("evt-3", LocalDateTime.now().plusHours(2));
+
+        scheduler.reconcile(account, List.of(event));
+
+        assertEquals(1, scheduler.pendingCount());
+        verify(bot, after(200).never()).sendCalendarNotification(any(), any(), any());
+    }
+}
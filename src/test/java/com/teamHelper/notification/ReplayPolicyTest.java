@@ -0,0 +1,45 @@
+package com.teamHelper.notification;
+
+import com.teamHelper.model.CalendarEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.teamHelper.calendar.TestEvents.event;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayPolicyTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 3, 11, 0);
+
+    private final ReplayPolicy policy = new ReplayPolicy(Duration.ofMinutes(30), 2);
+
+    @Test
+    void shouldSendRecentLateAndDropStaleOrFinished() {
+        CalendarEvent recent = event("recent", NOW.minusMinutes(10), NOW.plusMinutes(50));
+        CalendarEvent stale = event("stale", NOW.minusMinutes(45), NOW.plusMinutes(75));
+        CalendarEvent finished = event("finished", NOW.minusMinutes(20), NOW.minusMinutes(5));
+
+        ReplayPolicy.Plan plan = policy.plan(List.of(recent, stale, finished), NOW);
+
+        assertEquals(List.of(recent), plan.late());
+        assertTrue(plan.summary().isEmpty());
+        assertEquals(List.of(stale, finished), plan.dropped());
+    }
+
+    @Test
+    void shouldSummarizeWhenTooManyMissed() {
+        List<CalendarEvent> missed = List.of(
+                event("a", NOW.minusMinutes(15), NOW.plusMinutes(45)),
+                event("b", NOW.minusMinutes(10), NOW.plusMinutes(50)),
+                event("c", NOW.minusMinutes(5), NOW.plusMinutes(55)));
+
+        ReplayPolicy.Plan plan = policy.plan(missed, NOW);
+
+        assertTrue(plan.late().isEmpty());
+        assertEquals(missed, plan.summary());
+    }
+}